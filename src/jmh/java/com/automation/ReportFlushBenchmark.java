@@ -0,0 +1,62 @@
+package com.automation;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.reporter.ExtentSparkReporter;
+
+/**
+ * ExtentReports.flush with many tests in the report
+ * Each test has the steps a typical song test logs (found images, screenshot, pass), so the report
+ * has the shape of a large nightly run. The HTML goes to target/jmh-work.
+ * The report is rebuilt before every iteration, so each single shot is the first flush of a
+ * full report, as at the end of a suite, rather than a re-render of an already flushed one.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportFlushBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int testCount;
+
+    private ExtentReports extent;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        extent = new ExtentReports();
+        extent.attachReporter(new ExtentSparkReporter("target/jmh-work/ExtentReport-" + testCount + ".html"));
+        for (int i = 0; i < testCount; i++) {
+            ExtentTest test = extent.createTest("testCase" + i, "Play song " + i);
+            test.assignCategory("smoke");
+            test.log(Status.INFO, "Starting test on thread worker-" + (i % 4));
+            test.log(Status.PASS, "Found WindowsStartButton.jpg with match score: 0.97 - clicked (41 ms)");
+            test.log(Status.PASS, "Found FolderExplorer.jpg with match score: 0.93 - clicked (55 ms)");
+            test.log(Status.INFO, "Entered 42 characters (PASTED 42 characters in 120 ms)");
+            test.log(Status.PASS, "Screenshot captured: testCase" + i + "_song.png");
+            test.log(Status.PASS, "Song started");
+        }
+    }
+
+    @Benchmark
+    public ExtentReports flush() {
+        extent.flush();
+        return extent;
+    }
+}
@@ -0,0 +1,75 @@
+package com.automation;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing a desktop-size screenshot through ScreenshotSink.writeImage, as the encoder threads do
+ * format selects the file type (png, or jpg at screenshot.jpeg.quality 0.85).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScreenshotEncodingBenchmark {
+
+    @Param({"png", "jpg"})
+    public String format;
+
+    private BufferedImage screenshot;
+    private File target;
+
+    @Setup
+    public void setup() {
+        screenshot = new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = screenshot.createGraphics();
+        Random random = new Random(7);
+        g.setColor(new Color(240, 240, 240));
+        g.fillRect(0, 0, screenshot.getWidth(), screenshot.getHeight());
+        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 13));
+        for (int i = 0; i < 8; i++) {
+            int x = random.nextInt(1400);
+            int y = random.nextInt(700);
+            g.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+            g.fillRect(x, y, 500, 300);
+            g.setColor(Color.BLACK);
+            for (int line = 0; line < 14; line++) {
+                g.drawString("Playing C:\\Users\\test\\Music\\Track " + random.nextInt(1000) + ".mp3", x + 10, y + 20 + line * 20);
+            }
+        }
+        g.dispose();
+        target = new File("target/jmh-work/screenshot." + format);
+        target.getParentFile().mkdirs();
+    }
+
+    @Benchmark
+    public long writeImage() throws IOException {
+        ScreenshotSink.writeImage(screenshot, target, 0.85f);
+        return target.length();
+    }
+
+    @TearDown
+    public void tearDown() {
+        target.delete();
+    }
+}
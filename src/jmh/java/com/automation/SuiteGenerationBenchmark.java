@@ -0,0 +1,76 @@
+package com.automation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testng.xml.XmlSuite;
+
+/**
+ * Building the TestNG suite from TestcaseToRun.config, the work generateTestNGXml does before every run
+ * buildSuite covers the config parsing, the test index lookup, sharding and scheduling; suiteXml
+ * adds the XML text written to dynamic-testng.xml (the file itself is left alone); testIndex is the
+ * lookup of the test methods on its own.
+ * The setup brings the test index file (in target/jmh-work) up to date, so the measured loads only
+ * read it, and silences the progress lines the generator prints to System.out.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SuiteGenerationBenchmark {
+
+    private PrintStream console;
+
+    @Setup
+    public void setup() {
+        System.setProperty("test.index.file", "target/jmh-work/test-index.tsv");
+        System.setProperty("suite.xml.debug", "false");
+        TestIndex.load(TestNGXmlGenerator.PACKAGE_TO_SCAN);
+        console = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public XmlSuite buildSuite() throws IOException {
+        return TestNGXmlGenerator.buildSuite();
+    }
+
+    @Benchmark
+    public String suiteXml() throws IOException {
+        return TestNGXmlGenerator.buildSuite().toXml();
+    }
+
+    @Benchmark
+    public Map<String, List<String>> testIndex() {
+        return TestIndex.load(TestNGXmlGenerator.PACKAGE_TO_SCAN).getTestMethodsByClass();
+    }
+}
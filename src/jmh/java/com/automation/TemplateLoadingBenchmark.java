@@ -0,0 +1,54 @@
+package com.automation;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sikuli.script.Pattern;
+
+/**
+ * Cost of turning a template name into a SikuliX pattern, as createPattern does for every lookup
+ * cold: read and decode the file, build the grayscale pyramid and the pattern (first lookup)
+ * cached: the TemplateCache hit every later lookup takes
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateLoadingBenchmark {
+
+    @Param({"WindowsStartButton.jpg", "FolderExplorer.jpg", "SelectSong.jpg"})
+    public String imageName;
+
+    private String templateDir;
+    private TemplateCache warmCache;
+
+    @Setup
+    public void setup() {
+        templateDir = System.getProperty("user.dir") + "/src/resources";
+        warmCache = new TemplateCache(templateDir, 64L * 1024 * 1024);
+        if (warmCache.get(imageName, 0.8) == null) {
+            throw new IllegalStateException("Template not found: " + templateDir + "/" + imageName);
+        }
+    }
+
+    @Benchmark
+    public Pattern cold() {
+        return new TemplateCache(templateDir, 64L * 1024 * 1024).get(imageName, 0.8).getPattern();
+    }
+
+    @Benchmark
+    public Pattern cached() {
+        return warmCache.get(imageName, 0.8).getPattern();
+    }
+}
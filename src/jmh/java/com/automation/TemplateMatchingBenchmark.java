@@ -0,0 +1,138 @@
+package com.automation;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Template matching on a synthetic 1920x1080 desktop
+ * The desktop is drawn once (windows, text, noise) with the real template images pasted at known
+ * positions, so the matcher does the same work as on a real screen without needing a display.
+ * newFrame benchmarks include building the grayscale pyramid of the frame, sharedFrame ones reuse it
+ * as the lookups of one capture do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateMatchingBenchmark {
+
+    private static final String[] TEMPLATES = {"WindowsStartButton.jpg", "FolderExplorer.jpg", "SelectSong.jpg"};
+
+    private final NccTemplateMatcher matcher = new NccTemplateMatcher();
+    private final MultiTemplateSearch multiSearch = new MultiTemplateSearch(matcher);
+    private BufferedImage desktop;
+    private ScreenFrame sharedFrame;
+    private List<TemplateImage> templates;
+    private TemplateImage missing;
+    private Rectangle hintArea;
+
+    @Setup
+    public void setup() {
+        TemplateCache cache = new TemplateCache(System.getProperty("user.dir") + "/src/resources", 64L * 1024 * 1024);
+        templates = new ArrayList<>();
+        for (String name : TEMPLATES) {
+            TemplateImage template = cache.get(name, 0.8);
+            if (template == null) {
+                throw new IllegalStateException("Template not found: " + name);
+            }
+            templates.add(template);
+        }
+        desktop = drawDesktop(templates);
+        sharedFrame = new ScreenFrame(desktop);
+        sharedFrame.getGrayLevel(0);
+
+        // A template that is not on the desktop: the full search with no early exit
+        BufferedImage absent = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = absent.createGraphics();
+        g.setColor(new Color(200, 30, 160));
+        g.fillOval(4, 4, 56, 40);
+        g.dispose();
+        missing = new TemplateImage("Missing.png", 0.8, absent);
+
+        // Area around the first template, as searched with a location hint
+        TemplateImage first = templates.get(0);
+        hintArea = new Rectangle(0, desktop.getHeight() - first.getHeight() - 150, first.getWidth() + 300, first.getHeight() + 150);
+    }
+
+    /**
+     * Draw a busy desktop with the templates at fixed places (first one in the bottom left corner like a start button)
+     */
+    private static BufferedImage drawDesktop(List<TemplateImage> templates) {
+        BufferedImage image = new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        Random random = new Random(42);
+        g.setColor(new Color(30, 80, 140));
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 13));
+        for (int i = 0; i < 12; i++) {
+            int x = random.nextInt(1500);
+            int y = random.nextInt(800);
+            g.setColor(new Color(220 + random.nextInt(35), 220 + random.nextInt(35), 220 + random.nextInt(35)));
+            g.fillRect(x, y, 420, 260);
+            g.setColor(new Color(60, 60, 90));
+            g.fillRect(x, y, 420, 24);
+            g.setColor(Color.DARK_GRAY);
+            for (int line = 0; line < 10; line++) {
+                g.drawString("C:\\Users\\test\\Music\\Track " + random.nextInt(1000) + ".mp3", x + 10, y + 44 + line * 20);
+            }
+        }
+        for (int i = 0; i < 4000; i++) {
+            image.setRGB(random.nextInt(image.getWidth()), random.nextInt(image.getHeight()), random.nextInt(0xffffff));
+        }
+        g.setColor(new Color(20, 20, 30));
+        g.fillRect(0, image.getHeight() - 48, image.getWidth(), 48);
+        int x = 0;
+        for (int i = 0; i < templates.size(); i++) {
+            BufferedImage template = templates.get(i).getImage();
+            int y = i == 0 ? image.getHeight() - template.getHeight() : 300 + 120 * i;
+            g.drawImage(template, x, y, null);
+            x += i == 0 ? 700 : template.getWidth() + 200;
+        }
+        g.dispose();
+        return image;
+    }
+
+    @Benchmark
+    public MatchResult findNewFrame() {
+        return matcher.find(new ScreenFrame(desktop), null, templates.get(0), 0.8);
+    }
+
+    @Benchmark
+    public MatchResult findSharedFrame() {
+        return matcher.find(sharedFrame, null, templates.get(0), 0.8);
+    }
+
+    @Benchmark
+    public MatchResult findInHintArea() {
+        return matcher.find(sharedFrame, hintArea, templates.get(0), 0.8);
+    }
+
+    @Benchmark
+    public MatchResult findMissing() {
+        return matcher.find(sharedFrame, null, missing, 0.8);
+    }
+
+    @Benchmark
+    public List<MatchResult> findAllNewFrame() {
+        return multiSearch.findAll(new ScreenFrame(desktop), null, templates);
+    }
+}
@@ -0,0 +1,146 @@
+package com.automation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility class to read tunable automation settings
+ * Values are taken from JVM system properties (e.g. -Dscreenshot.queue.capacity=16) first and
+ * from key=value lines in TestcaseToRun.config second.
+ */
+public final class AutomationConfig {
+
+    private static final String CONFIG_FILE = "TestcaseToRun.config";
+    private static Map<String, String> fileSettings;
+
+    private AutomationConfig() {
+    }
+
+    /**
+     * Check if a TestcaseToRun.config line is a setting rather than a test method
+     * @param line A trimmed line of the config file
+     * @return true for key=value lines
+     */
+    public static boolean isSettingLine(String line) {
+        return line.indexOf('=') > 0;
+    }
+
+    /**
+     * Get a string setting
+     * @param key The setting name
+     * @param defaultValue Value used when the setting is not defined
+     * @return The configured value or the default
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            value = getFileSettings().get(key);
+        }
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
+    /**
+     * Get an integer setting
+     * @param key The setting name
+     * @param defaultValue Value used when the setting is missing or invalid
+     * @return The configured value or the default
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid integer for " + key + ": " + value + ". Using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Get a long setting
+     * @param key The setting name
+     * @param defaultValue Value used when the setting is missing or invalid
+     * @return The configured value or the default
+     */
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number for " + key + ": " + value + ". Using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Get a decimal setting
+     * @param key The setting name
+     * @param defaultValue Value used when the setting is missing or invalid
+     * @return The configured value or the default
+     */
+    public static double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number for " + key + ": " + value + ". Using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Get a boolean setting
+     * @param key The setting name
+     * @param defaultValue Value used when the setting is not defined
+     * @return The configured value or the default
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Read the key=value lines of TestcaseToRun.config once
+     */
+    private static synchronized Map<String, String> getFileSettings() {
+        if (fileSettings == null) {
+            Map<String, String> settings = new HashMap<>();
+            Path configPath = Paths.get(CONFIG_FILE);
+            if (Files.exists(configPath)) {
+                try {
+                    List<String> lines = Files.readAllLines(configPath);
+                    for (String line : lines) {
+                        String trimmed = line.trim();
+                        if (isSettingLine(trimmed)) {
+                            int separator = trimmed.indexOf('=');
+                            settings.put(trimmed.substring(0, separator).trim(), trimmed.substring(separator + 1).trim());
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error reading settings from " + CONFIG_FILE + ": " + e.getMessage());
+                }
+            }
+            fileSettings = settings;
+        }
+        return fileSettings;
+    }
+}
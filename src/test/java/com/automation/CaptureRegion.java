@@ -0,0 +1,150 @@
+package com.automation;
+
+import java.awt.Rectangle;
+
+/**
+ * Part of the screen a screenshot should cover
+ * A region is an explicit rectangle, the last image match of the test with some padding around
+ * it, or a name looked up in the config file as screenshot.region.NAME=x,y,width,height.
+ * The region is resolved at capture time and clipped to the screen; anything that can't be
+ * resolved falls back to the full screen.
+ */
+public final class CaptureRegion {
+
+    /** The whole screen */
+    public static final CaptureRegion FULL_SCREEN = new CaptureRegion(Kind.FULL_SCREEN, null, null, 0);
+
+    private enum Kind { FULL_SCREEN, RECTANGLE, LAST_MATCH, NAMED }
+
+    private final Kind kind;
+    private final Rectangle rectangle;
+    private final String name;
+    private final int padding;
+
+    private CaptureRegion(Kind kind, Rectangle rectangle, String name, int padding) {
+        this.kind = kind;
+        this.rectangle = rectangle;
+        this.name = name;
+        this.padding = padding;
+    }
+
+    /**
+     * @param area Area in screen coordinates
+     * @return A region covering the area
+     */
+    public static CaptureRegion of(Rectangle area) {
+        return new CaptureRegion(Kind.RECTANGLE, new Rectangle(area), null, 0);
+    }
+
+    /**
+     * @param x Screen x coordinate of the left edge
+     * @param y Screen y coordinate of the top edge
+     * @param width Width in pixels
+     * @param height Height in pixels
+     * @return A region covering the rectangle
+     */
+    public static CaptureRegion of(int x, int y, int width, int height) {
+        return of(new Rectangle(x, y, width, height));
+    }
+
+    /**
+     * A region around the last image found by the current test, padded by screenshot.match.padding pixels
+     * @return The region
+     */
+    public static CaptureRegion lastMatch() {
+        return lastMatch(AutomationConfig.getInt("screenshot.match.padding", 150));
+    }
+
+    /**
+     * @param padding Pixels added on every side of the match
+     * @return A region around the last image found by the current test
+     */
+    public static CaptureRegion lastMatch(int padding) {
+        return new CaptureRegion(Kind.LAST_MATCH, null, null, Math.max(0, padding));
+    }
+
+    /**
+     * @param name Region name, configured as screenshot.region.NAME=x,y,width,height
+     * @return The named region
+     */
+    public static CaptureRegion named(String name) {
+        return new CaptureRegion(Kind.NAMED, null, name, 0);
+    }
+
+    /**
+     * Work out the area to capture
+     * @param screenBounds Bounds of the screen
+     * @param lastMatch The last match of the current test, or null
+     * @return The area clipped to the screen, or the full screen when the region can't be resolved
+     */
+    public Rectangle resolve(Rectangle screenBounds, MatchResult lastMatch) {
+        Rectangle area;
+        switch (kind) {
+            case RECTANGLE:
+                area = new Rectangle(rectangle);
+                break;
+            case LAST_MATCH:
+                if (lastMatch == null) {
+                    System.out.println("No image matched yet, capturing the full screen");
+                    return new Rectangle(screenBounds);
+                }
+                area = lastMatch.getBounds();
+                area.grow(padding, padding);
+                break;
+            case NAMED:
+                area = parse(AutomationConfig.getString("screenshot.region." + name, null));
+                if (area == null) {
+                    System.out.println("Screenshot region " + name + " is not configured, capturing the full screen");
+                    return new Rectangle(screenBounds);
+                }
+                break;
+            default:
+                return new Rectangle(screenBounds);
+        }
+        area = area.intersection(screenBounds);
+        if (area.isEmpty()) {
+            System.err.println("Screenshot region " + this + " is outside the screen, capturing the full screen");
+            return new Rectangle(screenBounds);
+        }
+        return area;
+    }
+
+    /**
+     * @return true if this region is the whole screen
+     */
+    public boolean isFullScreen() {
+        return kind == Kind.FULL_SCREEN;
+    }
+
+    private static Rectangle parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        String[] parts = value.split(",");
+        if (parts.length != 4) {
+            System.err.println("Invalid screenshot region '" + value + "', expected x,y,width,height");
+            return null;
+        }
+        try {
+            return new Rectangle(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                    Integer.parseInt(parts[2].trim()), Integer.parseInt(parts[3].trim()));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid screenshot region '" + value + "': " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case RECTANGLE:
+                return String.format("(%d,%d %dx%d)", rectangle.x, rectangle.y, rectangle.width, rectangle.height);
+            case LAST_MATCH:
+                return "last match +" + padding + "px";
+            case NAMED:
+                return name;
+            default:
+                return "full screen";
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.automation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.reporter.ExtentSparkReporter;
+import com.aventstack.extentreports.reporter.JsonFormatter;
+import com.aventstack.extentreports.reporter.configuration.Theme;
+
+/**
+ * Extent reporting that keeps only the most recent tests in memory
+ * Tests are created in chunks of report.chunk.size tests, each chunk with its own ExtentReports
+ * writing a JSON archive and its own HTML part next to the report (ExtentReport-part-NNNNN.html).
+ * Once every test of a full chunk has finished, the chunk is written and dropped together with its
+ * tests and log lines, so memory stays at one chunk per running thread while the tests run. The
+ * open chunks are also written every report.flush.interval.ms, so a crashed run still leaves the
+ * parts up to the last write. close() builds the usual Spark ExtentReport.html from the JSON
+ * archives of all chunks.
+ */
+public class ChunkedExtentReports {
+
+    private final File directory;
+    private final File reportFile;
+    private final int chunkSize;
+    private final long flushIntervalMillis;
+    private final List<Chunk> chunks = new ArrayList<>();
+    private final Map<ExtentTest, Chunk> owners = new IdentityHashMap<>();
+    private final List<Chunk> openChunks = new ArrayList<>();
+    private Chunk current;
+    private long lastFlush = System.currentTimeMillis();
+    private long releasedTests;
+    private boolean closed;
+
+    /**
+     * Create chunked reporting
+     * @param directory Directory for the JSON chunk files (emptied first)
+     * @param reportFile The Spark report built at close; the parts are written next to it
+     * @param chunkSize Tests per chunk
+     * @param flushIntervalMillis Maximum time between writes of the open chunks (0 = only when full)
+     */
+    public ChunkedExtentReports(File directory, File reportFile, int chunkSize, long flushIntervalMillis) {
+        this.directory = directory;
+        this.reportFile = reportFile;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.flushIntervalMillis = flushIntervalMillis;
+        File[] old = directory.listFiles();
+        if (old != null) {
+            for (File file : old) {
+                if (file.getName().startsWith("chunk-") && file.getName().endsWith(".json")) {
+                    file.delete();
+                }
+            }
+        }
+        File[] oldParts = reportFile.getAbsoluteFile().getParentFile().listFiles();
+        if (oldParts != null) {
+            for (File file : oldParts) {
+                if (file.getName().startsWith(partPrefix()) && file.getName().endsWith(".html")) {
+                    file.delete();
+                }
+            }
+        }
+        directory.mkdirs();
+    }
+
+    /**
+     * Create chunked reporting configured by the report.* settings
+     * @return The chunked reporting, or null when report.chunk.size is not set (keep everything in memory)
+     */
+    public static ChunkedExtentReports fromConfig() {
+        int chunkSize = AutomationConfig.getInt("report.chunk.size", 0);
+        if (chunkSize <= 0) {
+            return null;
+        }
+        return new ChunkedExtentReports(new File(AutomationConfig.getString("report.chunk.dir", "test-output/report-chunks")),
+                new File("test-output/ExtentReport.html"), chunkSize, AutomationConfig.getLong("report.flush.interval.ms", 30000));
+    }
+
+    /**
+     * Create a test in the current chunk
+     * @param name The name of the test
+     * @param description The description of the test
+     * @return The new test
+     */
+    public synchronized ExtentTest createTest(String name, String description) {
+        if (current == null || current.created >= chunkSize) {
+            int number = chunks.size() + 1;
+            current = new Chunk(number, new File(directory, String.format("chunk-%05d.json", number)),
+                    new File(reportFile.getAbsoluteFile().getParentFile(), partName(number)));
+            chunks.add(current);
+            openChunks.add(current);
+        }
+        ExtentTest test = current.reports.createTest(name, description);
+        current.created++;
+        current.running++;
+        owners.put(test, current);
+        return test;
+    }
+
+    /**
+     * Mark a test as finished, writing and releasing its chunk when that was the last running test of a full chunk
+     * @param test A test created by createTest
+     */
+    public synchronized void testFinished(ExtentTest test) {
+        Chunk chunk = owners.remove(test);
+        if (chunk == null) {
+            return;
+        }
+        chunk.running--;
+        if (chunk.created >= chunkSize && chunk.running == 0) {
+            chunk.write();
+            chunk.release();
+            openChunks.remove(chunk);
+            releasedTests += chunk.created;
+            if (chunk == current) {
+                current = null;
+            }
+        } else if (flushIntervalMillis > 0 && System.currentTimeMillis() - lastFlush >= flushIntervalMillis) {
+            flush();
+        }
+    }
+
+    /**
+     * Write the chunks that are still in memory (a checkpoint)
+     */
+    public synchronized void flush() {
+        for (Chunk chunk : openChunks) {
+            chunk.write();
+        }
+        lastFlush = System.currentTimeMillis();
+    }
+
+    /**
+     * Write the remaining chunks and build the final report from all of them
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flush();
+        ExtentSparkReporter sparkReporter = new ExtentSparkReporter(reportFile);
+        sparkReporter.config().setDocumentTitle("WAMP Automation Test Report");
+        sparkReporter.config().setReportName("SikuliX & Selenium Test Report");
+        sparkReporter.config().setTheme(Theme.STANDARD);
+        ExtentReports merged = new ExtentReports();
+        merged.attachReporter(sparkReporter);
+        merged.setSystemInfo("OS", System.getProperty("os.name"));
+        merged.setSystemInfo("Java Version", System.getProperty("java.version"));
+        merged.setSystemInfo("User", System.getProperty("user.name"));
+        merged.setSystemInfo("Browser", "Chrome");
+        for (Chunk chunk : chunks) {
+            try {
+                merged.createDomainFromJsonArchive(chunk.jsonFile);
+            } catch (IOException e) {
+                System.err.println("Failed to read report chunk " + chunk.jsonFile.getPath() + ": " + e.getMessage());
+            }
+        }
+        merged.flush();
+    }
+
+    /**
+     * @return One line summary for logging
+     */
+    public synchronized String getSummary() {
+        return String.format("report chunks=%d released tests=%d running=%d",
+                chunks.size(), releasedTests, owners.size());
+    }
+
+    private static String partPrefix() {
+        return "ExtentReport-part-";
+    }
+
+    private static String partName(int number) {
+        return String.format("%s%05d.html", partPrefix(), number);
+    }
+
+    private static final class Chunk {
+        private final File jsonFile;
+        private ExtentReports reports = new ExtentReports();
+        private int created;
+        private int running;
+
+        Chunk(int number, File jsonFile, File htmlFile) {
+            this.jsonFile = jsonFile;
+            ExtentSparkReporter spark = new ExtentSparkReporter(htmlFile);
+            spark.config().setDocumentTitle("WAMP Automation Test Report - part " + number);
+            spark.config().setReportName("SikuliX & Selenium Test Report - part " + number);
+            spark.config().setTheme(Theme.STANDARD);
+            reports.attachReporter(new JsonFormatter(jsonFile), spark);
+            reports.setSystemInfo("OS", System.getProperty("os.name"));
+            reports.setSystemInfo("Java Version", System.getProperty("java.version"));
+            reports.setSystemInfo("User", System.getProperty("user.name"));
+        }
+
+        void write() {
+            if (reports != null) {
+                reports.flush();
+            }
+        }
+
+        /**
+         * Drop the tests once the chunk is on disk
+         */
+        void release() {
+            reports = null;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.automation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import io.github.bonigarcia.wdm.WebDriverManager;
+
+/**
+ * Local cache of the resolved chromedriver binary
+ * The first run resolves the driver through WebDriverManager and records its path and version in
+ * a small properties file. Later runs reuse that entry without any version check or download as
+ * long as the binary is still there, which keeps suite startup fast and works without network.
+ * Set driver.cache.refresh=true to force a new resolution.
+ */
+public final class DriverResolutionCache {
+
+    private static final String DRIVER_PROPERTY = "webdriver.chrome.driver";
+
+    private static String resolvedPath;
+
+    private DriverResolutionCache() {
+    }
+
+    /**
+     * Make sure webdriver.chrome.driver points to a chromedriver binary
+     * Resolution happens at most once per JVM.
+     * @return Path of the chromedriver binary
+     */
+    public static synchronized String resolveChromeDriver() {
+        if (resolvedPath != null) {
+            return resolvedPath;
+        }
+
+        long start = System.nanoTime();
+
+        // An explicitly configured driver always wins
+        String configured = System.getProperty(DRIVER_PROPERTY);
+        if (configured != null && new File(configured).canExecute()) {
+            resolvedPath = configured;
+            System.out.println("Using configured chromedriver: " + configured);
+            return resolvedPath;
+        }
+
+        File cacheFile = new File(AutomationConfig.getString("driver.cache.file", "test-output/driver-resolution.properties"));
+        boolean refresh = AutomationConfig.getBoolean("driver.cache.refresh", false);
+
+        if (!refresh) {
+            Properties cached = load(cacheFile);
+            String path = cached.getProperty("path");
+            if (path != null && new File(path).canExecute()) {
+                System.setProperty(DRIVER_PROPERTY, path);
+                resolvedPath = path;
+                System.out.println("Using cached chromedriver " + cached.getProperty("version", "?") + " at " + path
+                        + " (" + (System.nanoTime() - start) / 1_000_000 + " ms)");
+                return resolvedPath;
+            }
+        }
+
+        // Cache miss, stale entry or refresh requested: resolve through WebDriverManager
+        WebDriverManager manager = WebDriverManager.chromedriver();
+        if (refresh) {
+            manager.clearResolutionCache();
+        }
+        manager.setup();
+        String path = manager.getDownloadedDriverPath();
+        String version = manager.getDownloadedDriverVersion();
+        if (path == null) {
+            path = System.getProperty(DRIVER_PROPERTY);
+        }
+        resolvedPath = path;
+        System.out.println("Resolved chromedriver " + version + " at " + path
+                + " (" + (System.nanoTime() - start) / 1_000_000 + " ms)");
+
+        if (path != null) {
+            Properties entry = new Properties();
+            entry.setProperty("path", path);
+            entry.setProperty("version", version == null ? "" : version);
+            entry.setProperty("resolvedAt", String.valueOf(System.currentTimeMillis()));
+            save(cacheFile, entry);
+        }
+        return resolvedPath;
+    }
+
+    private static Properties load(File file) {
+        Properties properties = new Properties();
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                System.err.println("Failed to read driver cache " + file.getPath() + ": " + e.getMessage());
+            }
+        }
+        return properties;
+    }
+
+    private static void save(File file, Properties properties) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            properties.store(out, "Resolved chromedriver binary");
+        } catch (IOException e) {
+            System.err.println("Failed to write driver cache " + file.getPath() + ": " + e.getMessage());
+        }
+    }
+}
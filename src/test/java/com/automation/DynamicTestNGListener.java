@@ -1,13 +1,9 @@
 package com.automation;
 
 import org.testng.IAlterSuiteListener;
-import org.testng.xml.Parser;
 import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.List;
 
 /**
@@ -18,37 +14,31 @@ public class DynamicTestNGListener implements IAlterSuiteListener {
     @Override
     public void alter(List<XmlSuite> suites) {
         try {
-            // Generate the dynamic TestNG XML
-            TestNGXmlGenerator.generateTestNGXml();
-            
-            // Read the generated XML
-            File xmlFile = new File("dynamic-testng.xml");
-            if (xmlFile.exists()) {
-                // Parse the XML content
-                String xmlContent = new String(Files.readAllBytes(Paths.get("dynamic-testng.xml")));
+            // Clear existing suites and add our dynamic one
+            if (!suites.isEmpty()) {
+                XmlSuite existingSuite = suites.get(0);
                 
-                // Clear existing suites and add our dynamic one
-                if (!suites.isEmpty()) {
-                    XmlSuite existingSuite = suites.get(0);
-                    
-                    // Parse the dynamic XML into a suite using Parser
-                    Parser parser = new Parser("dynamic-testng.xml");
-                    List<XmlSuite> dynamicSuites = parser.parseToList();
-                    
-                    if (!dynamicSuites.isEmpty()) {
-                        XmlSuite dynamicSuite = dynamicSuites.get(0);
-                        
-                        // Copy tests from dynamic suite to existing suite
-                        existingSuite.getTests().clear();
-                        existingSuite.getTests().addAll(dynamicSuite.getTests());
-                    }
-                    
-                    System.out.println("Dynamic TestNG configuration applied successfully.");
+                // Build the dynamic suite in memory
+                XmlSuite dynamicSuite = TestNGXmlGenerator.buildSuite();
+                
+                // Move tests from dynamic suite to existing suite
+                existingSuite.getTests().clear();
+                for (XmlTest test : dynamicSuite.getTests()) {
+                    test.setSuite(existingSuite);
+                    existingSuite.getTests().add(test);
                 }
-            } else {
-                System.err.println("Dynamic TestNG XML file not found. Using default configuration.");
+                
+                // Copy parallel execution settings
+                existingSuite.setParallel(dynamicSuite.getParallel());
+                existingSuite.setThreadCount(dynamicSuite.getThreadCount());
+                
+                System.out.println("Dynamic TestNG configuration applied successfully.");
             }
         } catch (Exception e) {
+            // A shard must not fall back to the default suite, that would run every test on every shard
+            if (AutomationConfig.getInt("shard.count", 1) > 1) {
+                throw new IllegalStateException("Could not build the suite of this shard", e);
+            }
             System.err.println("Error applying dynamic TestNG configuration: " + e.getMessage());
             e.printStackTrace();
         }
@@ -0,0 +1,246 @@
+package com.automation;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Records the last few seconds of the screen so a failure can show what led up to it
+ * A background thread captures the screen recorder.fps times a second and draws a downscaled
+ * copy into a ring of frames that is allocated once at start, so memory use never grows. Nothing
+ * is written to disk unless a test fails, in which case the frames recorded since the test started
+ * are saved as an animated GIF.
+ */
+public class FrameRecorder {
+
+    private final Supplier<BufferedImage> capture;
+    private final BufferedImage[] frames;
+    private final Graphics2D[] graphics;
+    private final long[] timestamps;
+    private final long intervalMillis;
+    private final ScheduledExecutorService executor;
+    private int next;
+    private int count;
+    private long captured;
+    private long failures;
+    private long totalCaptureNanos;
+
+    /**
+     * Create a recorder and allocate its frames
+     * @param capture Captures the full screen
+     * @param fps Frames per second
+     * @param seconds Length of the recording kept in memory
+     * @param width Width of the stored frames
+     * @param height Height of the stored frames
+     */
+    public FrameRecorder(Supplier<BufferedImage> capture, double fps, int seconds, int width, int height) {
+        this.capture = capture;
+        this.intervalMillis = Math.max(10, Math.round(1000 / fps));
+        int capacity = Math.max(1, (int) Math.ceil(seconds * fps));
+        this.frames = new BufferedImage[capacity];
+        this.graphics = new Graphics2D[capacity];
+        this.timestamps = new long[capacity];
+        for (int i = 0; i < capacity; i++) {
+            frames[i] = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            graphics[i] = frames[i].createGraphics();
+            graphics[i].setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "frame-recorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return true if recorder.fps is set above 0; the recorder is off by default because it
+     *         captures the full screen in the background while the tests run
+     */
+    public static boolean isEnabled() {
+        return getFps() > 0;
+    }
+
+    private static double getFps() {
+        return AutomationConfig.getDouble("recorder.fps", 0);
+    }
+
+    /**
+     * Create a recorder configured by the recorder.* settings
+     * @param capture Captures the full screen
+     * @param screenWidth Width of the screen
+     * @param screenHeight Height of the screen
+     * @return The recorder (not started), or null when recorder.fps is 0 (disabled, the default)
+     */
+    public static FrameRecorder fromConfig(Supplier<BufferedImage> capture, int screenWidth, int screenHeight) {
+        double fps = getFps();
+        if (fps <= 0) {
+            return null;
+        }
+        int width = Math.min(screenWidth, AutomationConfig.getInt("recorder.width", 480));
+        int height = Math.max(1, (int) Math.round((double) screenHeight * width / screenWidth));
+        return new FrameRecorder(capture, fps, AutomationConfig.getInt("recorder.seconds", 10), width, height);
+    }
+
+    /**
+     * Start recording in the background
+     */
+    public void start() {
+        executor.scheduleAtFixedRate(this::record, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        System.out.println(String.format("Frame recorder started: %d frames of %dx%d every %d ms (%d KB)",
+                frames.length, frames[0].getWidth(), frames[0].getHeight(), intervalMillis, getMemoryBytes() / 1024));
+    }
+
+    /**
+     * Stop recording and release the drawing contexts
+     */
+    public void stop() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            for (Graphics2D g : graphics) {
+                g.dispose();
+            }
+            count = 0;
+        }
+    }
+
+    private void record() {
+        try {
+            long start = System.nanoTime();
+            BufferedImage screen = capture.get();
+            synchronized (this) {
+                if (executor.isShutdown()) {
+                    return;
+                }
+                BufferedImage frame = frames[next];
+                graphics[next].drawImage(screen, 0, 0, frame.getWidth(), frame.getHeight(), null);
+                timestamps[next] = System.currentTimeMillis();
+                next = (next + 1) % frames.length;
+                count = Math.min(count + 1, frames.length);
+                captured++;
+                totalCaptureNanos += System.nanoTime() - start;
+            }
+        } catch (Exception e) {
+            // Keep recording, a single failed capture only leaves a gap
+            synchronized (this) {
+                if (failures++ == 0) {
+                    System.err.println("Frame recorder capture failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the frames recorded since a point in time as an animated GIF
+     * Recording pauses while the file is written.
+     * @param file Target file
+     * @param sinceMillis Only frames recorded at or after this time are written (0 = all)
+     * @return Number of frames written (0 = nothing recorded, no file written)
+     * @throws IOException if the file can't be written
+     */
+    public synchronized int dump(File file, long sinceMillis) throws IOException {
+        int first = (next - count + frames.length) % frames.length;
+        int selected = 0;
+        for (int i = 0; i < count; i++) {
+            if (timestamps[(first + i) % frames.length] >= sinceMillis) {
+                selected++;
+            }
+        }
+        if (selected == 0) {
+            return 0;
+        }
+
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("gif");
+        if (!writers.hasNext()) {
+            throw new IOException("No GIF writer available");
+        }
+        ImageWriter writer = writers.next();
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        if (file.exists()) {
+            file.delete();
+        }
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file)) {
+            writer.setOutput(out);
+            writer.prepareWriteSequence(null);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            boolean firstFrame = true;
+            for (int i = count - selected; i < count; i++) {
+                int index = (first + i) % frames.length;
+                int nextIndex = (index + 1) % frames.length;
+                long delay = i + 1 < count ? timestamps[nextIndex] - timestamps[index] : intervalMillis;
+                IIOMetadata metadata = writer.getDefaultImageMetadata(
+                        ImageTypeSpecifier.createFromRenderedImage(frames[index]), param);
+                setFrameMetadata(metadata, delay, firstFrame);
+                writer.writeToSequence(new IIOImage(frames[index], null, metadata), param);
+                firstFrame = false;
+            }
+            writer.endWriteSequence();
+        } finally {
+            writer.dispose();
+        }
+        return selected;
+    }
+
+    private static void setFrameMetadata(IIOMetadata metadata, long delayMillis, boolean loop) throws IOException {
+        String format = metadata.getNativeMetadataFormatName();
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+
+        IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+        control.setAttribute("disposalMethod", "none");
+        control.setAttribute("userInputFlag", "FALSE");
+        control.setAttribute("transparentColorFlag", "FALSE");
+        control.setAttribute("delayTime", Long.toString(Math.max(1, delayMillis / 10)));
+        control.setAttribute("transparentColorIndex", "0");
+        root.appendChild(control);
+
+        if (loop) {
+            // NETSCAPE2.0 extension: repeat forever
+            IIOMetadataNode extensions = new IIOMetadataNode("ApplicationExtensions");
+            IIOMetadataNode extension = new IIOMetadataNode("ApplicationExtension");
+            extension.setAttribute("applicationID", "NETSCAPE");
+            extension.setAttribute("authenticationCode", "2.0");
+            extension.setUserObject(new byte[] {1, 0, 0});
+            extensions.appendChild(extension);
+            root.appendChild(extensions);
+        }
+        metadata.setFromTree(format, root);
+    }
+
+    /**
+     * @return Memory held by the frames in bytes
+     */
+    public long getMemoryBytes() {
+        return (long) frames.length * frames[0].getWidth() * frames[0].getHeight() * 4;
+    }
+
+    /**
+     * @return One line summary for logging
+     */
+    public synchronized String getSummary() {
+        return String.format("frame recorder captured=%d failed=%d avgCapture=%.1fms memory=%dKB",
+                captured, failures, captured == 0 ? 0.0 : totalCaptureNanos / (captured * 1_000_000.0),
+                getMemoryBytes() / 1024);
+    }
+}
@@ -0,0 +1,177 @@
+package com.automation;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Compact 8-bit grayscale image used for image comparison and matching
+ * Pixels are stored row by row as unsigned bytes (0 = black, 255 = white).
+ */
+public final class GrayImage {
+
+    private final int width;
+    private final int height;
+    private final byte[] pixels;
+
+    public GrayImage(int width, int height, byte[] pixels) {
+        if (width <= 0 || height <= 0 || pixels.length != width * height) {
+            throw new IllegalArgumentException("Invalid gray image size " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    /**
+     * Convert a color image to grayscale using integer luma weights
+     * @param image The source image
+     * @return Grayscale copy of the image
+     */
+    public static GrayImage fromBufferedImage(BufferedImage image) {
+        return fromBufferedImage(image, new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+    }
+
+    /**
+     * Convert part of a color image to grayscale
+     * @param image The source image
+     * @param area The area to convert, clipped to the image bounds
+     * @return Grayscale copy of the area
+     */
+    public static GrayImage fromBufferedImage(BufferedImage image, Rectangle area) {
+        Rectangle clipped = area.intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        if (clipped.isEmpty()) {
+            throw new IllegalArgumentException("Area " + area + " is outside the image");
+        }
+        int w = clipped.width;
+        int h = clipped.height;
+        byte[] gray = new byte[w * h];
+        int[] row = new int[w];
+        for (int y = 0; y < h; y++) {
+            image.getRGB(clipped.x, clipped.y + y, w, 1, row, 0, w);
+            int offset = y * w;
+            for (int x = 0; x < w; x++) {
+                int rgb = row[x];
+                int r = (rgb >> 16) & 0xff;
+                int g = (rgb >> 8) & 0xff;
+                int b = rgb & 0xff;
+                gray[offset + x] = (byte) ((r * 77 + g * 150 + b * 29) >> 8);
+            }
+        }
+        return new GrayImage(w, h, gray);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return The backing pixel array (not copied)
+     */
+    public byte[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * @param x Column
+     * @param y Row
+     * @return Gray value 0-255
+     */
+    public int get(int x, int y) {
+        return pixels[y * width + x] & 0xff;
+    }
+
+    /**
+     * @return Approximate memory used by the pixel data in bytes
+     */
+    public long getSizeInBytes() {
+        return pixels.length;
+    }
+
+    /**
+     * Halve the resolution by averaging 2x2 blocks
+     * @return Image with half the width and height (at least 1x1)
+     */
+    public GrayImage downscale2x() {
+        int w = Math.max(1, width / 2);
+        int h = Math.max(1, height / 2);
+        byte[] out = new byte[w * h];
+        for (int y = 0; y < h; y++) {
+            int y0 = Math.min(height - 1, y * 2);
+            int y1 = Math.min(height - 1, y * 2 + 1);
+            for (int x = 0; x < w; x++) {
+                int x0 = Math.min(width - 1, x * 2);
+                int x1 = Math.min(width - 1, x * 2 + 1);
+                int sum = get(x0, y0) + get(x1, y0) + get(x0, y1) + get(x1, y1);
+                out[y * w + x] = (byte) ((sum + 2) >> 2);
+            }
+        }
+        return new GrayImage(w, h, out);
+    }
+
+    /**
+     * Resize by averaging the source pixels that fall into each target pixel
+     * @param targetWidth New width
+     * @param targetHeight New height
+     * @return Resized image
+     */
+    public GrayImage resize(int targetWidth, int targetHeight) {
+        byte[] out = new byte[targetWidth * targetHeight];
+        for (int ty = 0; ty < targetHeight; ty++) {
+            int sy0 = ty * height / targetHeight;
+            int sy1 = Math.max(sy0 + 1, (ty + 1) * height / targetHeight);
+            for (int tx = 0; tx < targetWidth; tx++) {
+                int sx0 = tx * width / targetWidth;
+                int sx1 = Math.max(sx0 + 1, (tx + 1) * width / targetWidth);
+                long sum = 0;
+                for (int sy = sy0; sy < sy1; sy++) {
+                    int offset = sy * width;
+                    for (int sx = sx0; sx < sx1; sx++) {
+                        sum += pixels[offset + sx] & 0xff;
+                    }
+                }
+                int count = (sy1 - sy0) * (sx1 - sx0);
+                out[ty * targetWidth + tx] = (byte) (sum / count);
+            }
+        }
+        return new GrayImage(targetWidth, targetHeight, out);
+    }
+
+    /**
+     * Average per-pixel brightness difference to another image of the same size
+     * @param other The image to compare with
+     * @return Mean absolute difference (0 = identical, 255 = black vs white)
+     */
+    public double meanAbsoluteDifference(GrayImage other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Image sizes differ: " + width + "x" + height
+                    + " vs " + other.width + "x" + other.height);
+        }
+        long total = 0;
+        byte[] otherPixels = other.pixels;
+        for (int i = 0; i < pixels.length; i++) {
+            total += Math.abs((pixels[i] & 0xff) - (otherPixels[i] & 0xff));
+        }
+        return (double) total / pixels.length;
+    }
+
+    /**
+     * Copy part of the image
+     * @param area The area to copy, clipped to the image bounds
+     * @return New image holding the area
+     */
+    public GrayImage crop(Rectangle area) {
+        Rectangle clipped = area.intersection(new Rectangle(0, 0, width, height));
+        if (clipped.isEmpty()) {
+            throw new IllegalArgumentException("Area " + area + " is outside the image");
+        }
+        byte[] out = new byte[clipped.width * clipped.height];
+        for (int y = 0; y < clipped.height; y++) {
+            System.arraycopy(pixels, (clipped.y + y) * width + clipped.x, out, y * clipped.width, clipped.width);
+        }
+        return new GrayImage(clipped.width, clipped.height, out);
+    }
+}
@@ -0,0 +1,47 @@
+package com.automation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lazily built image pyramid
+ * Level 0 is the full resolution image, each following level halves the width and height.
+ */
+public final class GrayPyramid {
+
+    private final List<GrayImage> levels = new ArrayList<>();
+
+    public GrayPyramid(GrayImage base) {
+        levels.add(base);
+    }
+
+    /**
+     * Get a pyramid level, building the missing levels on first use
+     * @param level 0 for the full resolution image
+     * @return The image at the requested level
+     */
+    public synchronized GrayImage getLevel(int level) {
+        while (levels.size() <= level) {
+            levels.add(levels.get(levels.size() - 1).downscale2x());
+        }
+        return levels.get(level);
+    }
+
+    /**
+     * Memory used once every level down to 1x1 is built
+     * Levels are built lazily, so this is what the pyramid grows to rather than what it holds now.
+     * @return Size of all levels in bytes, level 0 included
+     */
+    public long getSizeInBytes() {
+        GrayImage base = levels.get(0);
+        int w = base.getWidth();
+        int h = base.getHeight();
+        long size = (long) w * h;
+        while (w > 1 || h > 1) {
+            w = Math.max(1, w / 2);
+            h = Math.max(1, h / 2);
+            size += (long) w * h;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,458 @@
+package com.automation;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Latency histograms of the expensive automation operations
+ * Every find, click, capture, encode, wait and browser start is counted in a histogram with fixed
+ * buckets, kept separately per operation, template image and test. Recording is two map lookups
+ * and a few atomic increments, with no allocation once a series exists. At the end of the run the
+ * histograms are written in the Prometheus text format (metrics.file) so p50/p99 can be compared
+ * between builds, and a summary table is added to the Extent report. Coordinator workers write
+ * their own file next to it; the bucket bounds are fixed, so the coordinator reads the worker files
+ * back and adds them up for the merged report.
+ */
+public final class LatencyMetrics {
+
+    /**
+     * Measured operations
+     */
+    public enum Operation {
+        FIND("find"), CLICK("click"), CAPTURE("capture"), ENCODE("encode"), WAIT("wait"), DRIVER_START("driver_start");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final String METRIC = "automation_operation_duration_seconds";
+    private static final String MAX_METRIC = "automation_operation_duration_max_seconds";
+
+    // Bucket upper bounds in milliseconds, roughly three per decade so percentiles stay close
+    private static final double[] BOUNDS_MILLIS = {
+            0.25, 0.5, 1, 2, 3, 5, 7.5, 10, 15, 20, 30, 50, 75, 100, 150, 200, 300, 500, 750,
+            1000, 1500, 2000, 3000, 5000, 7500, 10000, 20000, 30000, 60000};
+
+    // Bucket bounds in seconds as written to the le label
+    private static final String[] BOUND_LABELS = new String[BOUNDS_MILLIS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            BOUND_LABELS[i] = new BigDecimal(BOUNDS_MILLIS[i]).movePointLeft(3).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    private static final LatencyMetrics INSTANCE = new LatencyMetrics(AutomationConfig.getBoolean("metrics.enabled", true));
+
+    private final boolean enabled;
+    // Operation, then template, then test: lookups reuse the caller's strings and allocate nothing
+    private final List<ConcurrentMap<String, ConcurrentMap<String, Series>>> series = new ArrayList<>();
+
+    private LatencyMetrics(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < Operation.values().length; i++) {
+            series.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    public static LatencyMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return The metrics file of this JVM: metrics.file, or for a coordinator worker the
+     *         file of that worker next to it
+     */
+    public static File getFile() {
+        String file = AutomationConfig.getString("metrics.file", "test-output/metrics.prom");
+        if (!TestNGExecutor.isWorker()) {
+            return new File(file);
+        }
+        return new File(workerPrefix(file) + AutomationConfig.getString("executor.worker.id", "1") + ".prom");
+    }
+
+    /**
+     * @return The metrics files written by coordinator workers (metrics-worker-*.prom next to metrics.file)
+     */
+    public static List<File> findWorkerFiles() {
+        File prefix = new File(workerPrefix(AutomationConfig.getString("metrics.file", "test-output/metrics.prom")));
+        File dir = prefix.getAbsoluteFile().getParentFile();
+        String name = prefix.getName();
+        File[] files = dir == null ? null : dir.listFiles((d, n) -> n.startsWith(name) && n.endsWith(".prom"));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files);
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    private static String workerPrefix(String file) {
+        String base = file.endsWith(".prom") ? file.substring(0, file.length() - ".prom".length()) : file;
+        return base + "-worker-";
+    }
+
+    /**
+     * Record an operation of the test running on the calling thread
+     * @param operation The operation
+     * @param template Template image the operation was about, or null
+     * @param nanos Duration
+     */
+    public void record(Operation operation, String template, long nanos) {
+        record(operation, template, TestSession.currentTestName(), nanos);
+    }
+
+    /**
+     * Record an operation
+     * @param operation The operation
+     * @param template Template image the operation was about, or null
+     * @param test Test the operation belonged to, or null
+     * @param nanos Duration
+     */
+    public void record(Operation operation, String template, String test, long nanos) {
+        if (!enabled || nanos < 0) {
+            return;
+        }
+        series(operation, template == null ? "" : template, test == null ? "" : test).histogram.record(nanos);
+    }
+
+    private Series series(Operation operation, String template, String test) {
+        ConcurrentMap<String, Series> byTest = series.get(operation.ordinal()).get(template);
+        if (byTest == null) {
+            byTest = series.get(operation.ordinal()).computeIfAbsent(template, k -> new ConcurrentHashMap<>());
+        }
+        Series entry = byTest.get(test);
+        if (entry == null) {
+            entry = byTest.computeIfAbsent(test, k -> new Series(operation, template, test));
+        }
+        return entry;
+    }
+
+    /**
+     * Write all histograms in the Prometheus text exposition format
+     * @param file Target file, replaced atomically
+     */
+    public void writePrometheus(File file) {
+        List<Series> sorted = sortedSeries();
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (PrintWriter out = new PrintWriter(temp, StandardCharsets.UTF_8.name())) {
+            out.println("# HELP " + METRIC + " Duration of automation operations (find, click, capture, encode, wait, driver_start)");
+            out.println("# TYPE " + METRIC + " histogram");
+            for (Series entry : sorted) {
+                String labels = labels(entry);
+                long[] counts = entry.histogram.snapshot();
+                long cumulative = 0;
+                for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+                    cumulative += counts[i];
+                    out.println(METRIC + "_bucket{" + labels + ",le=\"" + BOUND_LABELS[i] + "\"} " + cumulative);
+                }
+                cumulative += counts[BOUNDS_MILLIS.length];
+                out.println(METRIC + "_bucket{" + labels + ",le=\"+Inf\"} " + cumulative);
+                out.println(METRIC + "_sum{" + labels + "} " + entry.histogram.sumNanos.get() / 1e9);
+                out.println(METRIC + "_count{" + labels + "} " + cumulative);
+            }
+            // Not part of the histogram, kept so merged worker files still report the maximum
+            out.println("# HELP " + MAX_METRIC + " Longest automation operation");
+            out.println("# TYPE " + MAX_METRIC + " gauge");
+            for (Series entry : sorted) {
+                out.println(MAX_METRIC + "{" + labels(entry) + "} " + entry.histogram.maxNanos.get() / 1e9);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write metrics file " + file.getPath() + ": " + e.getMessage());
+            return;
+        }
+        try {
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            System.out.println("Latency metrics written to " + file.getPath() + " (" + sorted.size() + " series)");
+        } catch (IOException e) {
+            System.err.println("Failed to write metrics file " + file.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Add the histograms of a file written by writePrometheus, for example by a coordinator worker
+     * @param file The Prometheus text file
+     * @return Number of series read
+     */
+    public int readPrometheus(File file) {
+        Map<String, Operation> operations = new HashMap<>();
+        for (Operation operation : Operation.values()) {
+            operations.put(operation.getLabel(), operation);
+        }
+        Map<String, Integer> bounds = new HashMap<>();
+        for (int i = 0; i < BOUND_LABELS.length; i++) {
+            bounds.put(BOUND_LABELS[i], i);
+        }
+        bounds.put("+Inf", BOUNDS_MILLIS.length);
+
+        Map<List<String>, long[]> cumulative = new LinkedHashMap<>();
+        Map<List<String>, Long> sums = new HashMap<>();
+        Map<List<String>, Long> maxima = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int open = line.indexOf('{');
+                int close = line.lastIndexOf('}');
+                if (line.startsWith("#") || open < 0 || close < open) {
+                    continue;
+                }
+                String name = line.substring(0, open);
+                Map<String, String> labels = parseLabels(line.substring(open + 1, close));
+                double value = Double.parseDouble(line.substring(close + 1).trim());
+                if (!operations.containsKey(labels.get("operation"))) {
+                    continue;
+                }
+                List<String> key = Arrays.asList(labels.get("operation"), labels.get("template"), labels.get("test"));
+                if (name.equals(METRIC + "_bucket")) {
+                    Integer bucket = bounds.get(labels.get("le"));
+                    if (bucket != null) {
+                        cumulative.computeIfAbsent(key, k -> new long[BOUNDS_MILLIS.length + 1])[bucket] = (long) value;
+                    }
+                } else if (name.equals(METRIC + "_sum")) {
+                    sums.put(key, Math.round(value * 1e9));
+                } else if (name.equals(MAX_METRIC)) {
+                    maxima.put(key, Math.round(value * 1e9));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to read metrics file " + file.getPath() + ": " + e.getMessage());
+            return 0;
+        }
+
+        for (Map.Entry<List<String>, long[]> entry : cumulative.entrySet()) {
+            List<String> key = entry.getKey();
+            long[] counts = new long[BOUNDS_MILLIS.length + 1];
+            long previous = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = Math.max(0, entry.getValue()[i] - previous);
+                previous = Math.max(previous, entry.getValue()[i]);
+            }
+            String template = key.get(1) == null ? "" : key.get(1);
+            String test = key.get(2) == null ? "" : key.get(2);
+            Long sum = sums.get(key);
+            Long max = maxima.get(key);
+            series(operations.get(key.get(0)), template, test).histogram.add(counts,
+                    sum == null ? 0 : sum, max == null ? 0 : max);
+        }
+        return cumulative.size();
+    }
+
+    private static Map<String, String> parseLabels(String text) {
+        Map<String, String> labels = new HashMap<>();
+        int i = 0;
+        while (i < text.length()) {
+            int equals = text.indexOf('=', i);
+            if (equals < 0 || equals + 1 >= text.length() || text.charAt(equals + 1) != '"') {
+                break;
+            }
+            String name = text.substring(i, equals).trim();
+            StringBuilder value = new StringBuilder();
+            int j = equals + 2;
+            while (j < text.length() && text.charAt(j) != '"') {
+                char c = text.charAt(j);
+                if (c == '\\' && j + 1 < text.length()) {
+                    char next = text.charAt(++j);
+                    value.append(next == 'n' ? '\n' : next);
+                } else {
+                    value.append(c);
+                }
+                j++;
+            }
+            labels.put(name, value.toString());
+            // Skip the closing quote and the comma
+            i = j + 2;
+        }
+        return labels;
+    }
+
+    /**
+     * Build the summary tables shown in the report: per operation, per template image and per test
+     * @return HTML tables
+     */
+    public String getHtmlSummary() {
+        StringBuilder html = new StringBuilder();
+        html.append("<b>Per operation</b>");
+        appendTable(html, "Operation", groupBy(s -> s.operation.getLabel()));
+        html.append("<b>Per template image</b>");
+        appendTable(html, "Template", groupBy(s -> s.template.isEmpty() ? null : s.operation.getLabel() + " " + s.template));
+        html.append("<b>Per test</b>");
+        appendTable(html, "Test", groupBy(s -> s.test.isEmpty() ? null : s.test + " " + s.operation.getLabel()));
+        return html.toString();
+    }
+
+    /**
+     * @return One line per operation for the console
+     */
+    public String getSummary() {
+        StringBuilder text = new StringBuilder("Latency per operation (ms):");
+        for (Map.Entry<String, Histogram> entry : groupBy(s -> s.operation.getLabel()).entrySet()) {
+            Histogram h = entry.getValue();
+            text.append(String.format("%n  %-13s count=%d p50=%.1f p90=%.1f p99=%.1f max=%.1f total=%.0f",
+                    entry.getKey(), h.count(), h.percentileMillis(0.50), h.percentileMillis(0.90),
+                    h.percentileMillis(0.99), h.maxNanos.get() / 1e6, h.sumNanos.get() / 1e6));
+        }
+        return text.toString();
+    }
+
+    private void appendTable(StringBuilder html, String title, Map<String, Histogram> rows) {
+        html.append("<table class='table table-sm'><tr><th>").append(title)
+                .append("</th><th>Count</th><th>p50 ms</th><th>p90 ms</th><th>p99 ms</th><th>Max ms</th><th>Total ms</th></tr>");
+        for (Map.Entry<String, Histogram> row : rows.entrySet()) {
+            Histogram h = row.getValue();
+            html.append(String.format("<tr><td>%s</td><td>%d</td><td>%.1f</td><td>%.1f</td><td>%.1f</td><td>%.1f</td><td>%.0f</td></tr>",
+                    row.getKey().replace("<", "&lt;"), h.count(), h.percentileMillis(0.50), h.percentileMillis(0.90),
+                    h.percentileMillis(0.99), h.maxNanos.get() / 1e6, h.sumNanos.get() / 1e6));
+        }
+        html.append("</table>");
+    }
+
+    private Map<String, Histogram> groupBy(Function<Series, String> key) {
+        Map<String, Histogram> groups = new LinkedHashMap<>();
+        for (Series entry : sortedSeries()) {
+            String name = key.apply(entry);
+            if (name != null) {
+                groups.computeIfAbsent(name, k -> new Histogram()).add(entry.histogram);
+            }
+        }
+        return groups;
+    }
+
+    private List<Series> sortedSeries() {
+        List<Series> sorted = new ArrayList<>();
+        for (Map<String, ConcurrentMap<String, Series>> byTemplate : series) {
+            for (Map<String, Series> byTest : byTemplate.values()) {
+                sorted.addAll(byTest.values());
+            }
+        }
+        sorted.sort(Comparator.comparing((Series s) -> s.operation)
+                .thenComparing(s -> s.template).thenComparing(s -> s.test));
+        return sorted;
+    }
+
+    private static String labels(Series entry) {
+        return "operation=\"" + entry.operation.getLabel() + "\",template=\"" + escape(entry.template)
+                + "\",test=\"" + escape(entry.test) + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static final class Series {
+        private final Operation operation;
+        private final String template;
+        private final String test;
+        private final Histogram histogram = new Histogram();
+
+        Series(Operation operation, String template, String test) {
+            this.operation = operation;
+            this.template = template;
+            this.test = test;
+        }
+    }
+
+    private static final class Histogram {
+        private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_MILLIS.length + 1);
+        private final AtomicLong sumNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            double millis = nanos / 1e6;
+            int bucket = 0;
+            while (bucket < BOUNDS_MILLIS.length && millis > BOUNDS_MILLIS[bucket]) {
+                bucket++;
+            }
+            counts.incrementAndGet(bucket);
+            sumNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        void add(Histogram other) {
+            add(other.snapshot(), other.sumNanos.get(), other.maxNanos.get());
+        }
+
+        void add(long[] bucketCounts, long sum, long max) {
+            for (int i = 0; i < counts.length(); i++) {
+                counts.addAndGet(i, bucketCounts[i]);
+            }
+            sumNanos.addAndGet(sum);
+            maxNanos.accumulateAndGet(max, Math::max);
+        }
+
+        long[] snapshot() {
+            long[] copy = new long[counts.length()];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = counts.get(i);
+            }
+            return copy;
+        }
+
+        long count() {
+            long total = 0;
+            for (long count : snapshot()) {
+                total += count;
+            }
+            return total;
+        }
+
+        /**
+         * Estimate a percentile by interpolating inside its bucket
+         */
+        double percentileMillis(double quantile) {
+            long[] snapshot = snapshot();
+            long total = 0;
+            for (long count : snapshot) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0.0;
+            }
+            double maxMillis = maxNanos.get() / 1e6;
+            double rank = quantile * total;
+            long before = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                if (snapshot[i] > 0 && before + snapshot[i] >= rank) {
+                    double lower = i == 0 ? 0.0 : BOUNDS_MILLIS[i - 1];
+                    double upper = i < BOUNDS_MILLIS.length ? Math.min(BOUNDS_MILLIS[i], maxMillis) : maxMillis;
+                    double value = lower + (upper - lower) * (rank - before) / snapshot[i];
+                    return Math.min(Math.max(value, lower), maxMillis);
+                }
+                before += snapshot[i];
+            }
+            return maxMillis;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.automation;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers where each template image was last found on screen
+ * Lookups first search a small padded area around the last location and only fall back to a
+ * full screen search when the image is not there. Hints can optionally be kept between runs
+ * in a small properties file.
+ */
+public final class LocationHintStore {
+
+    private static final LocationHintStore INSTANCE = new LocationHintStore(
+            AutomationConfig.getInt("hints.padding", 50),
+            AutomationConfig.getBoolean("hints.persist", false)
+                    ? new File(AutomationConfig.getString("hints.file", "test-output/location-hints.properties"))
+                    : null);
+
+    private final Map<String, Rectangle> hints = new ConcurrentHashMap<>();
+    private final int padding;
+    private final File file;
+    private final AtomicLong hintHits = new AtomicLong();
+    private final AtomicLong hintMisses = new AtomicLong();
+    private final AtomicLong fullSearches = new AtomicLong();
+    private final AtomicLong hintHitNanos = new AtomicLong();
+    private final AtomicLong hintMissNanos = new AtomicLong();
+    private final AtomicLong fullSearchNanos = new AtomicLong();
+
+    /**
+     * Create a hint store
+     * @param padding Pixels added around the last location when searching it
+     * @param file File to load and save hints, or null to keep them in memory only
+     */
+    public LocationHintStore(int padding, File file) {
+        this.padding = Math.max(0, padding);
+        this.file = file;
+        if (file != null) {
+            load();
+        }
+    }
+
+    /**
+     * @return The shared store configured by the hints.* settings
+     */
+    public static LocationHintStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the area to search first for an image
+     * @param imageName The name of the image file
+     * @param screenBounds Bounds of the screen being searched
+     * @return Padded last location clipped to the screen, or null if there is no usable hint
+     */
+    public Rectangle getSearchArea(String imageName, Rectangle screenBounds) {
+        Rectangle last = hints.get(imageName);
+        if (last == null) {
+            return null;
+        }
+        Rectangle area = new Rectangle(last.x - padding, last.y - padding,
+                last.width + 2 * padding, last.height + 2 * padding).intersection(screenBounds);
+        if (area.width < last.width || area.height < last.height) {
+            return null;
+        }
+        return area;
+    }
+
+    /**
+     * Record that an image was found inside its hint area
+     * @param imageName The name of the image file
+     * @param bounds Where the image matched
+     * @param elapsedNanos Time the hinted search took
+     */
+    public void recordHintHit(String imageName, Rectangle bounds, long elapsedNanos) {
+        hintHits.incrementAndGet();
+        hintHitNanos.addAndGet(elapsedNanos);
+        hints.put(imageName, new Rectangle(bounds));
+    }
+
+    /**
+     * Record that an image was not inside its hint area
+     * @param imageName The name of the image file
+     * @param elapsedNanos Time the hinted search took
+     */
+    public void recordHintMiss(String imageName, long elapsedNanos) {
+        hintMisses.incrementAndGet();
+        hintMissNanos.addAndGet(elapsedNanos);
+    }
+
+    /**
+     * Record the result of a full screen search
+     * @param imageName The name of the image file
+     * @param bounds Where the image matched, or null if it was not found
+     * @param elapsedNanos Time the full search took
+     */
+    public void recordFullSearch(String imageName, Rectangle bounds, long elapsedNanos) {
+        fullSearches.incrementAndGet();
+        fullSearchNanos.addAndGet(elapsedNanos);
+        if (bounds != null) {
+            hints.put(imageName, new Rectangle(bounds));
+        }
+    }
+
+    /**
+     * Forget the hint for an image
+     * @param imageName The name of the image file
+     */
+    public void remove(String imageName) {
+        hints.remove(imageName);
+    }
+
+    public long getHintHitCount() {
+        return hintHits.get();
+    }
+
+    public long getHintMissCount() {
+        return hintMisses.get();
+    }
+
+    public long getFullSearchCount() {
+        return fullSearches.get();
+    }
+
+    /**
+     * @return Fraction of hinted lookups that found the image in the hint area (0.0 to 1.0)
+     */
+    public double getHitRate() {
+        long total = hintHits.get() + hintMisses.get();
+        return total == 0 ? 0.0 : (double) hintHits.get() / total;
+    }
+
+    /**
+     * @return One line summary of hint usage and average find times for logging
+     */
+    public String getSummary() {
+        return String.format("location hints entries=%d hits=%d misses=%d hitRate=%.1f%% fullSearches=%d avgHintHit=%.1fms avgHintMiss=%.1fms avgFullSearch=%.1fms",
+                hints.size(), hintHits.get(), hintMisses.get(), getHitRate() * 100, fullSearches.get(),
+                average(hintHitNanos, hintHits), average(hintMissNanos, hintMisses), average(fullSearchNanos, fullSearches));
+    }
+
+    /**
+     * Write the hints to the hints file (does nothing when persistence is off)
+     */
+    public void save() {
+        if (file == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        for (Map.Entry<String, Rectangle> entry : hints.entrySet()) {
+            Rectangle r = entry.getValue();
+            properties.setProperty(entry.getKey(), r.x + "," + r.y + "," + r.width + "," + r.height);
+        }
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            properties.store(out, "Last known template locations");
+        } catch (IOException e) {
+            System.err.println("Failed to save location hints: " + e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            System.err.println("Failed to load location hints: " + e.getMessage());
+            return;
+        }
+        for (String name : properties.stringPropertyNames()) {
+            String[] parts = properties.getProperty(name).split(",");
+            if (parts.length != 4) {
+                continue;
+            }
+            try {
+                hints.put(name, new Rectangle(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                        Integer.parseInt(parts[2].trim()), Integer.parseInt(parts[3].trim())));
+            } catch (NumberFormatException e) {
+                System.err.println("Ignoring invalid location hint for " + name);
+            }
+        }
+        System.out.println("Loaded " + hints.size() + " location hints from " + file.getPath());
+    }
+
+    private static double average(AtomicLong nanos, AtomicLong count) {
+        long n = count.get();
+        return n == 0 ? 0.0 : nanos.get() / (n * 1_000_000.0);
+    }
+}
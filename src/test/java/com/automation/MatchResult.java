@@ -0,0 +1,50 @@
+package com.automation;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+
+/**
+ * Location and score of a template found on screen
+ * Coordinates are screen coordinates, the score has the same meaning as SikuliX Match.getScore()
+ * (normalized correlation, 1.0 = identical).
+ */
+public final class MatchResult {
+
+    private final String templateName;
+    private final Rectangle bounds;
+    private final double score;
+
+    public MatchResult(String templateName, int x, int y, int width, int height, double score) {
+        this.templateName = templateName;
+        this.bounds = new Rectangle(x, y, width, height);
+        this.score = score;
+    }
+
+    public String getTemplateName() {
+        return templateName;
+    }
+
+    /**
+     * @return Copy of the matched area in screen coordinates
+     */
+    public Rectangle getBounds() {
+        return new Rectangle(bounds);
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * @return Center of the matched area (the point a click should go to)
+     */
+    public Point getTarget() {
+        return new Point(bounds.x + bounds.width / 2, bounds.y + bounds.height / 2);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s at (%d,%d %dx%d) score %.3f", templateName, bounds.x, bounds.y,
+                bounds.width, bounds.height, score);
+    }
+}
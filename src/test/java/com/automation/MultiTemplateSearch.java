@@ -0,0 +1,132 @@
+package com.automation;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Looks for several templates in one captured frame
+ * The frame is captured once by the caller and every template is searched in it in parallel,
+ * so checking which of several states the screen is in costs one capture instead of one per
+ * template. The frame's grayscale pyramid is built once and shared by all searches. Each template
+ * is matched against its own similarity as loaded through the TemplateCache.
+ */
+public class MultiTemplateSearch {
+
+    private final TemplateMatcher matcher;
+    private final ForkJoinPool pool;
+
+    /**
+     * Create a search with the matcher configured by image.matcher
+     * The default image.matcher=screen searches the live screen and has no frame matcher, the
+     * captured frame is then searched with the SikuliX Finder.
+     * @return The search, using the common fork/join pool
+     */
+    public static MultiTemplateSearch fromConfig() {
+        TemplateMatcher matcher = TemplateMatcher.fromConfig();
+        return new MultiTemplateSearch(matcher != null ? matcher : new SikuliTemplateMatcher());
+    }
+
+    /**
+     * Create a search using the common fork/join pool
+     * @param matcher Matcher used for each template
+     */
+    public MultiTemplateSearch(TemplateMatcher matcher) {
+        this(matcher, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a search
+     * @param matcher Matcher used for each template
+     * @param pool Pool running one search per template
+     */
+    public MultiTemplateSearch(TemplateMatcher matcher, ForkJoinPool pool) {
+        this.matcher = matcher;
+        this.pool = pool;
+    }
+
+    /**
+     * Find every template that is on screen
+     * @param frame The captured screen
+     * @param searchArea Area to search in screen coordinates, or null for the whole frame
+     * @param templates Templates to look for
+     * @return The matches, best score first (empty if nothing was found)
+     */
+    public List<MatchResult> findAll(ScreenFrame frame, Rectangle searchArea, List<TemplateImage> templates) {
+        List<Future<MatchResult>> futures = new ArrayList<>();
+        for (TemplateImage template : templates) {
+            futures.add(pool.submit(() -> matcher.find(frame, searchArea, template, template.getSimilarity())));
+        }
+        List<MatchResult> matches = new ArrayList<>();
+        for (Future<MatchResult> future : futures) {
+            MatchResult match = await(future);
+            if (match != null) {
+                matches.add(match);
+            }
+        }
+        matches.sort(Comparator.comparingDouble(MatchResult::getScore).reversed());
+        return matches;
+    }
+
+    /**
+     * Find the template with the highest score
+     * @param frame The captured screen
+     * @param searchArea Area to search in screen coordinates, or null for the whole frame
+     * @param templates Templates to look for
+     * @return The best match or null if none of the templates is on screen
+     */
+    public MatchResult findBest(ScreenFrame frame, Rectangle searchArea, List<TemplateImage> templates) {
+        List<MatchResult> matches = findAll(frame, searchArea, templates);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    /**
+     * Find whichever template is found first
+     * Returns as soon as one search reports a match; searches that have not started yet are cancelled.
+     * @param frame The captured screen
+     * @param searchArea Area to search in screen coordinates, or null for the whole frame
+     * @param templates Templates to look for
+     * @return The first match or null if none of the templates is on screen
+     */
+    public MatchResult findAny(ScreenFrame frame, Rectangle searchArea, List<TemplateImage> templates) {
+        ExecutorCompletionService<MatchResult> completion = new ExecutorCompletionService<>(pool);
+        List<Future<MatchResult>> futures = new ArrayList<>();
+        for (TemplateImage template : templates) {
+            futures.add(completion.submit(() -> matcher.find(frame, searchArea, template, template.getSimilarity())));
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                MatchResult match = await(completion.take());
+                if (match != null) {
+                    return match;
+                }
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            for (Future<MatchResult> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private static MatchResult await(Future<MatchResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // One broken template should not hide the others
+            System.err.println("Template search failed: " + e.getCause());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.automation;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Pure Java template matcher using normalized cross-correlation (NCC)
+ * The search runs coarse-to-fine on a grayscale image pyramid: every position is scored at the
+ * coarsest level, split into row tiles that run in parallel on a fork/join pool, and the best
+ * candidates are then refined level by level in a small neighborhood.
+ * The score is the zero-mean normalized correlation (the TM_CCOEFF_NORMED measure SikuliX reports
+ * through Match.getScore()), computed on grayscale pixels.
+ */
+public class NccTemplateMatcher implements TemplateMatcher {
+
+    private static final int MIN_TEMPLATE_SIDE = 6;
+    private static final int REFINE_RADIUS = 2;
+    private static final double FLAT_VARIANCE = 1e-6;
+
+    private final ForkJoinPool pool;
+    private final int maxLevels;
+    private final int candidateCount;
+    private final int tileRows;
+
+    /**
+     * Create a matcher using the common fork/join pool and the matcher.* settings
+     */
+    public NccTemplateMatcher() {
+        this(ForkJoinPool.commonPool(),
+                AutomationConfig.getInt("matcher.max.levels", 3),
+                AutomationConfig.getInt("matcher.candidates", 8),
+                AutomationConfig.getInt("matcher.tile.rows", 16));
+    }
+
+    /**
+     * Create a matcher
+     * @param pool Pool running the coarse search tiles
+     * @param maxLevels Maximum number of pyramid levels above full resolution
+     * @param candidateCount Number of coarse candidates refined at full resolution
+     * @param tileRows Number of position rows scored by one fork/join task
+     */
+    public NccTemplateMatcher(ForkJoinPool pool, int maxLevels, int candidateCount, int tileRows) {
+        this.pool = pool;
+        this.maxLevels = Math.max(0, maxLevels);
+        this.candidateCount = Math.max(1, candidateCount);
+        this.tileRows = Math.max(1, tileRows);
+    }
+
+    @Override
+    public MatchResult find(ScreenFrame frame, Rectangle searchArea, TemplateImage template, double minScore) {
+        Rectangle area = frame.toFrameArea(searchArea);
+        if (area == null || area.width < template.getWidth() || area.height < template.getHeight()) {
+            return null;
+        }
+
+        // Pick the coarsest level where the template still has enough detail
+        int level = 0;
+        while (level < maxLevels
+                && (template.getWidth() >> (level + 1)) >= MIN_TEMPLATE_SIDE
+                && (template.getHeight() >> (level + 1)) >= MIN_TEMPLATE_SIDE) {
+            level++;
+        }
+
+        // Exhaustive search at the coarsest level
+        TemplateStats coarseTemplate = new TemplateStats(template.getGrayLevel(level));
+        GrayImage coarseImage = frame.getGrayLevel(level);
+        SearchWindow window = SearchWindow.of(scale(area, level), coarseImage, coarseTemplate);
+        if (window == null) {
+            return null;
+        }
+        List<Candidate> candidates = pool.invoke(new TileSearch(coarseImage, coarseTemplate, window,
+                window.minY, window.maxY + 1, candidateCount, tileRows));
+
+        // Refine the candidates down to full resolution
+        for (int current = level - 1; current >= 0; current--) {
+            TemplateStats levelTemplate = new TemplateStats(template.getGrayLevel(current));
+            GrayImage levelImage = frame.getGrayLevel(current);
+            SearchWindow levelWindow = SearchWindow.of(scale(area, current), levelImage, levelTemplate);
+            if (levelWindow == null) {
+                return null;
+            }
+            List<Candidate> refined = new ArrayList<>();
+            for (Candidate candidate : candidates) {
+                refined.add(refine(levelImage, levelTemplate, levelWindow, candidate.x * 2, candidate.y * 2));
+            }
+            candidates = refined;
+        }
+
+        Candidate best = null;
+        for (Candidate candidate : candidates) {
+            if (best == null || candidate.score > best.score) {
+                best = candidate;
+            }
+        }
+        if (best == null || best.score < minScore) {
+            return null;
+        }
+        return new MatchResult(template.getName(), frame.getOriginX() + best.x, frame.getOriginY() + best.y,
+                template.getWidth(), template.getHeight(), Math.min(1.0, best.score));
+    }
+
+    /**
+     * Score the neighborhood of a position and return the best one
+     */
+    private static Candidate refine(GrayImage image, TemplateStats template, SearchWindow window, int centerX, int centerY) {
+        Candidate best = new Candidate(window.clampX(centerX), window.clampY(centerY), -1.0);
+        int x0 = window.clampX(centerX - REFINE_RADIUS);
+        int x1 = window.clampX(centerX + REFINE_RADIUS);
+        int y0 = window.clampY(centerY - REFINE_RADIUS);
+        int y1 = window.clampY(centerY + REFINE_RADIUS);
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                double score = score(image, template, x, y);
+                if (score > best.score) {
+                    best = new Candidate(x, y, score);
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Normalized cross-correlation of the template placed at (x, y)
+     * Computed from integer sums in a single pass: cov / sqrt(varI * varT).
+     */
+    static double score(GrayImage image, TemplateStats template, int x, int y) {
+        byte[] pixels = image.getPixels();
+        int imageWidth = image.getWidth();
+        int[] t = template.pixels;
+        long sumI = 0;
+        long sumI2 = 0;
+        long dot = 0;
+        for (int ty = 0; ty < template.height; ty++) {
+            int row = (y + ty) * imageWidth + x;
+            int templateRow = ty * template.width;
+            int rowSum = 0;
+            int rowSum2 = 0;
+            long rowDot = 0;
+            for (int tx = 0; tx < template.width; tx++) {
+                int v = pixels[row + tx] & 0xff;
+                rowSum += v;
+                rowSum2 += v * v;
+                rowDot += v * t[templateRow + tx];
+            }
+            sumI += rowSum;
+            sumI2 += rowSum2;
+            dot += rowDot;
+        }
+        double n = template.count;
+        double varI = sumI2 - (double) sumI * sumI / n;
+        if (template.variance <= FLAT_VARIANCE) {
+            // Plain color template: compare brightness when the window is flat too
+            if (varI <= FLAT_VARIANCE * n) {
+                return 1.0 - Math.abs(sumI / n - template.sum / n) / 255.0;
+            }
+            return 0.0;
+        }
+        if (varI <= FLAT_VARIANCE) {
+            return 0.0;
+        }
+        double covariance = dot - (double) sumI * template.sum / n;
+        return covariance / Math.sqrt(varI * template.variance);
+    }
+
+    private static Rectangle scale(Rectangle area, int level) {
+        int x0 = area.x >> level;
+        int y0 = area.y >> level;
+        int x1 = (area.x + area.width) >> level;
+        int y1 = (area.y + area.height) >> level;
+        return new Rectangle(x0, y0, Math.max(1, x1 - x0), Math.max(1, y1 - y0));
+    }
+
+    /**
+     * Template pixels and sums precomputed once per lookup
+     */
+    static final class TemplateStats {
+        final int width;
+        final int height;
+        final int count;
+        final int[] pixels;
+        final long sum;
+        final double variance;
+
+        TemplateStats(GrayImage image) {
+            this.width = image.getWidth();
+            this.height = image.getHeight();
+            this.count = width * height;
+            this.pixels = new int[count];
+            long s = 0;
+            long s2 = 0;
+            byte[] source = image.getPixels();
+            for (int i = 0; i < count; i++) {
+                int v = source[i] & 0xff;
+                pixels[i] = v;
+                s += v;
+                s2 += (long) v * v;
+            }
+            this.sum = s;
+            this.variance = s2 - (double) s * s / count;
+        }
+    }
+
+    /**
+     * Range of valid top left positions for the template inside the search area
+     */
+    static final class SearchWindow {
+        final int minX;
+        final int minY;
+        final int maxX;
+        final int maxY;
+
+        private SearchWindow(int minX, int minY, int maxX, int maxY) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        static SearchWindow of(Rectangle area, GrayImage image, TemplateStats template) {
+            int minX = Math.max(0, area.x);
+            int minY = Math.max(0, area.y);
+            int maxX = Math.min(area.x + area.width, image.getWidth()) - template.width;
+            int maxY = Math.min(area.y + area.height, image.getHeight()) - template.height;
+            if (maxX < minX || maxY < minY) {
+                return null;
+            }
+            return new SearchWindow(minX, minY, maxX, maxY);
+        }
+
+        int clampX(int x) {
+            return Math.max(minX, Math.min(maxX, x));
+        }
+
+        int clampY(int y) {
+            return Math.max(minY, Math.min(maxY, y));
+        }
+    }
+
+    static final class Candidate {
+        final int x;
+        final int y;
+        final double score;
+
+        Candidate(int x, int y, double score) {
+            this.x = x;
+            this.y = y;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Scores a band of rows, splitting it in halves until a band is small enough for one task
+     * Each task keeps only its best few candidates that are not overlapping each other.
+     */
+    private static final class TileSearch extends RecursiveTask<List<Candidate>> {
+        private final GrayImage image;
+        private final TemplateStats template;
+        private final SearchWindow window;
+        private final int rowStart;
+        private final int rowEnd;
+        private final int keep;
+        private final int tileRows;
+
+        TileSearch(GrayImage image, TemplateStats template, SearchWindow window,
+                   int rowStart, int rowEnd, int keep, int tileRows) {
+            this.image = image;
+            this.template = template;
+            this.window = window;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.keep = keep;
+            this.tileRows = tileRows;
+        }
+
+        @Override
+        protected List<Candidate> compute() {
+            if (rowEnd - rowStart <= tileRows) {
+                List<Candidate> best = new ArrayList<>(keep + 1);
+                for (int y = rowStart; y < rowEnd; y++) {
+                    for (int x = window.minX; x <= window.maxX; x++) {
+                        offer(best, new Candidate(x, y, score(image, template, x, y)));
+                    }
+                }
+                return best;
+            }
+            int middle = (rowStart + rowEnd) >>> 1;
+            TileSearch top = new TileSearch(image, template, window, rowStart, middle, keep, tileRows);
+            TileSearch bottom = new TileSearch(image, template, window, middle, rowEnd, keep, tileRows);
+            top.fork();
+            List<Candidate> merged = bottom.compute();
+            for (Candidate candidate : top.join()) {
+                offer(merged, candidate);
+            }
+            return merged;
+        }
+
+        /**
+         * Add a candidate to a best-first list, keeping one entry per template sized neighborhood
+         */
+        private void offer(List<Candidate> best, Candidate candidate) {
+            if (best.size() == keep && candidate.score <= best.get(keep - 1).score) {
+                return;
+            }
+            int halfWidth = Math.max(1, template.width / 2);
+            int halfHeight = Math.max(1, template.height / 2);
+            for (int i = 0; i < best.size(); i++) {
+                Candidate existing = best.get(i);
+                if (Math.abs(existing.x - candidate.x) < halfWidth && Math.abs(existing.y - candidate.y) < halfHeight) {
+                    if (existing.score >= candidate.score) {
+                        return;
+                    }
+                    best.remove(i);
+                    break;
+                }
+            }
+            int index = 0;
+            while (index < best.size() && best.get(index).score >= candidate.score) {
+                index++;
+            }
+            best.add(index, candidate);
+            if (best.size() > keep) {
+                best.remove(best.size() - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.automation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares which expensive resources a test method (or every test of a class) uses
+ * Tests without the annotation are assumed to need everything.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface RequiresResources {
+    TestResource[] value();
+}
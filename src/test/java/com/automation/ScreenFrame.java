@@ -0,0 +1,103 @@
+package com.automation;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import org.sikuli.script.Screen;
+
+/**
+ * One captured screen image together with the screen position it was taken from
+ * The grayscale pyramid used for matching is built on first use and shared by every
+ * lookup against the same frame.
+ */
+public final class ScreenFrame {
+
+    private final BufferedImage image;
+    private final int originX;
+    private final int originY;
+    private GrayPyramid pyramid;
+
+    /**
+     * Wrap an image captured at the top left corner of the screen
+     * @param image The captured image
+     */
+    public ScreenFrame(BufferedImage image) {
+        this(image, 0, 0);
+    }
+
+    /**
+     * Wrap an image captured from part of the screen
+     * @param image The captured image
+     * @param originX Screen x coordinate of the image's left edge
+     * @param originY Screen y coordinate of the image's top edge
+     */
+    public ScreenFrame(BufferedImage image, int originX, int originY) {
+        this.image = image;
+        this.originX = originX;
+        this.originY = originY;
+    }
+
+    /**
+     * Capture an area of the screen
+     * @param screen SikuliX screen to capture from
+     * @param area Area in screen coordinates
+     * @return The captured frame
+     */
+    public static ScreenFrame capture(Screen screen, Rectangle area) {
+        long start = System.nanoTime();
+        BufferedImage image = screen.capture(area).getImage();
+        LatencyMetrics.getInstance().record(LatencyMetrics.Operation.CAPTURE, null, System.nanoTime() - start);
+        return new ScreenFrame(image, area.x, area.y);
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * @return Area covered by this frame in screen coordinates
+     */
+    public Rectangle getBounds() {
+        return new Rectangle(originX, originY, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * @return Full resolution grayscale image
+     */
+    public GrayImage getGray() {
+        return getGrayLevel(0);
+    }
+
+    /**
+     * @param level Pyramid level (0 = full resolution, each level halves the size)
+     * @return Grayscale image at that level
+     */
+    public synchronized GrayImage getGrayLevel(int level) {
+        if (pyramid == null) {
+            pyramid = new GrayPyramid(GrayImage.fromBufferedImage(image));
+        }
+        return pyramid.getLevel(level);
+    }
+
+    /**
+     * Translate a screen area into frame pixel coordinates
+     * @param screenArea Area in screen coordinates, or null for the whole frame
+     * @return The area clipped to the frame, or null if it does not overlap the frame
+     */
+    public Rectangle toFrameArea(Rectangle screenArea) {
+        Rectangle frameBounds = new Rectangle(0, 0, image.getWidth(), image.getHeight());
+        if (screenArea == null) {
+            return frameBounds;
+        }
+        Rectangle local = new Rectangle(screenArea.x - originX, screenArea.y - originY,
+                screenArea.width, screenArea.height).intersection(frameBounds);
+        return local.isEmpty() ? null : local;
+    }
+
+    public int getOriginX() {
+        return originX;
+    }
+
+    public int getOriginY() {
+        return originY;
+    }
+}
@@ -0,0 +1,195 @@
+package com.automation;
+
+import java.awt.Rectangle;
+import java.util.function.Function;
+
+/**
+ * Condition based waits that replace fixed sleeps
+ * The screen (or a region of it) is sampled at a fixed rate and the wait returns as soon as the
+ * condition holds: the picture stopped changing, or a template appeared. Every wait has a hard
+ * upper bound, and an interrupted wait gives up at once with a TIMEOUT result.
+ */
+public class ScreenWaiter {
+
+    private final Function<Rectangle, ScreenFrame> capture;
+    private final long sampleIntervalMillis;
+    private final long stableMillis;
+    private final double changeThreshold;
+    private final int sampleScale;
+
+    /**
+     * Create a waiter configured by the wait.* settings
+     * @param capture Captures the given screen area (null = whole screen)
+     */
+    public ScreenWaiter(Function<Rectangle, ScreenFrame> capture) {
+        this(capture,
+                AutomationConfig.getLong("wait.sample.interval.ms", 250),
+                AutomationConfig.getLong("wait.stable.ms", 1000),
+                AutomationConfig.getDouble("wait.change.threshold", 1.0),
+                AutomationConfig.getInt("wait.sample.scale", 8));
+    }
+
+    /**
+     * Create a waiter
+     * @param capture Captures the given screen area (null = whole screen)
+     * @param sampleIntervalMillis Time between two samples
+     * @param stableMillis How long the picture must stay unchanged to count as stable
+     * @param changeThreshold Mean gray level difference above which two samples count as different
+     * @param sampleScale Samples are shrunk by this factor before comparing
+     */
+    public ScreenWaiter(Function<Rectangle, ScreenFrame> capture, long sampleIntervalMillis, long stableMillis,
+                        double changeThreshold, int sampleScale) {
+        this.capture = capture;
+        this.sampleIntervalMillis = Math.max(1, sampleIntervalMillis);
+        this.stableMillis = Math.max(0, stableMillis);
+        this.changeThreshold = changeThreshold;
+        this.sampleScale = Math.max(1, sampleScale);
+    }
+
+    /**
+     * Wait until the area stops changing
+     * @param area Area to watch in screen coordinates (null = whole screen)
+     * @param maxWaitMillis Upper bound for the wait
+     * @param requireChange If true the area must change at least once before it can count as stable
+     *                      (use after an action whose effect may not have started yet)
+     * @return What happened and how long it took
+     */
+    public Result waitForStable(Rectangle area, long maxWaitMillis, boolean requireChange) {
+        long start = System.nanoTime();
+        long deadline = start + maxWaitMillis * 1_000_000L;
+        GrayImage previous = sample(area);
+        long stableSince = System.nanoTime();
+        boolean changed = false;
+        int samples = 1;
+
+        while (true) {
+            long now = System.nanoTime();
+            if (!requireChange || changed) {
+                if (now - stableSince >= stableMillis * 1_000_000L) {
+                    return new Result(Outcome.STABLE, now - start, samples, null);
+                }
+            }
+            if (now >= deadline || !pause(deadline)) {
+                return new Result(Outcome.TIMEOUT, System.nanoTime() - start, samples, null);
+            }
+
+            GrayImage current = sample(area);
+            samples++;
+            if (current.getWidth() != previous.getWidth() || current.getHeight() != previous.getHeight()
+                    || current.meanAbsoluteDifference(previous) > changeThreshold) {
+                changed = true;
+                stableSince = System.nanoTime();
+            }
+            previous = current;
+        }
+    }
+
+    /**
+     * Wait until a template appears
+     * @param matcher Matcher used on each sample
+     * @param template The template to look for
+     * @param similarity Minimum match score (0.0 to 1.0)
+     * @param area Area to search in screen coordinates (null = whole screen)
+     * @param maxWaitMillis Upper bound for the wait
+     * @return What happened, how long it took and the match if found
+     */
+    public Result waitForTemplate(TemplateMatcher matcher, TemplateImage template, double similarity,
+                                  Rectangle area, long maxWaitMillis) {
+        long start = System.nanoTime();
+        long deadline = start + maxWaitMillis * 1_000_000L;
+        int samples = 0;
+
+        while (true) {
+            MatchResult match = matcher.find(capture.apply(area), area, template, similarity);
+            samples++;
+            long now = System.nanoTime();
+            if (match != null) {
+                return new Result(Outcome.TEMPLATE_FOUND, now - start, samples, match);
+            }
+            if (now >= deadline || !pause(deadline)) {
+                return new Result(Outcome.TIMEOUT, System.nanoTime() - start, samples, null);
+            }
+        }
+    }
+
+    private GrayImage sample(Rectangle area) {
+        GrayImage gray = capture.apply(area).getGray();
+        int width = Math.max(1, gray.getWidth() / sampleScale);
+        int height = Math.max(1, gray.getHeight() / sampleScale);
+        return gray.resize(width, height);
+    }
+
+    /**
+     * Sleep until the next sample
+     * @return false if the thread was interrupted, the wait then gives up (the interrupt flag stays set)
+     */
+    private boolean pause(long deadlineNanos) {
+        long remaining = (deadlineNanos - System.nanoTime()) / 1_000_000L;
+        long sleep = Math.max(1, Math.min(sampleIntervalMillis, remaining));
+        try {
+            Thread.sleep(sleep);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Wait interrupted: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Why a wait returned
+     */
+    public enum Outcome {
+        STABLE,
+        TEMPLATE_FOUND,
+        TIMEOUT
+    }
+
+    /**
+     * Result of a wait
+     */
+    public static final class Result {
+        private final Outcome outcome;
+        private final long elapsedNanos;
+        private final int samples;
+        private final MatchResult match;
+
+        Result(Outcome outcome, long elapsedNanos, int samples, MatchResult match) {
+            this.outcome = outcome;
+            this.elapsedNanos = elapsedNanos;
+            this.samples = samples;
+            this.match = match;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * @return true if the condition was met before the upper bound
+         */
+        public boolean isSatisfied() {
+            return outcome != Outcome.TIMEOUT;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000L;
+        }
+
+        public int getSamples() {
+            return samples;
+        }
+
+        /**
+         * @return The match for TEMPLATE_FOUND, otherwise null
+         */
+        public MatchResult getMatch() {
+            return match;
+        }
+
+        @Override
+        public String toString() {
+            return outcome + " after " + getElapsedMillis() + " ms (" + samples + " samples)";
+        }
+    }
+}
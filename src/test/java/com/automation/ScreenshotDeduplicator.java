@@ -0,0 +1,177 @@
+package com.automation;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Detects screenshots that look the same as one taken earlier in the run
+ * Each capture gets a 64 bit difference hash (dHash) of a 9x8 grayscale version of the screen.
+ * Two captures whose hashes differ in at most screenshot.dedup.distance bits are treated as the
+ * same picture, so the report can point to the file that was already written instead of
+ * encoding a new one. Only captures of the same screen area are compared.
+ * A 9x8 hash can't see a changed dialog text or toast, so deduplication is off unless
+ * screenshot.dedup.distance is set, and failure screenshots are never deduplicated.
+ */
+public class ScreenshotDeduplicator {
+
+    // Pixels sampled per hash cell in each direction, enough to average out single pixels
+    private static final int SAMPLES_PER_CELL = 16;
+
+    private final int maxDistance;
+    private final int window;
+    private final Deque<Entry> recent = new ArrayDeque<>();
+    private long hashCount;
+    private long totalHashNanos;
+    private long maxHashNanos;
+    private long duplicateCount;
+
+    /**
+     * Create a deduplicator
+     * @param maxDistance Maximum number of differing hash bits for two captures to count as the same
+     * @param window Number of earlier captures to compare against
+     */
+    public ScreenshotDeduplicator(int maxDistance, int window) {
+        this.maxDistance = maxDistance;
+        this.window = Math.max(1, window);
+    }
+
+    /**
+     * Create a deduplicator from the screenshot.dedup.distance and screenshot.dedup.window settings
+     * @return The deduplicator, or null when screenshot.dedup.distance is negative (the default, disabled)
+     */
+    public static ScreenshotDeduplicator fromConfig() {
+        int distance = AutomationConfig.getInt("screenshot.dedup.distance", -1);
+        if (distance < 0) {
+            return null;
+        }
+        return new ScreenshotDeduplicator(distance, AutomationConfig.getInt("screenshot.dedup.window", 32));
+    }
+
+    /**
+     * Compute the perceptual hash of a capture
+     * The 9x8 cells are averaged from a fixed grid of sampled pixels instead of converting the
+     * whole capture to grayscale first, so hashing a full screen reads about 18000 pixels.
+     * @param image The captured image
+     * @return The 64 bit difference hash
+     */
+    public long hash(BufferedImage image) {
+        long start = System.nanoTime();
+        int[] cells = new int[9 * 8];
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] row = new int[9 * SAMPLES_PER_CELL];
+        int[] columns = new int[row.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = (int) ((2L * i + 1) * width / (2L * columns.length));
+        }
+        for (int cy = 0; cy < 8; cy++) {
+            for (int s = 0; s < SAMPLES_PER_CELL; s++) {
+                int y = (int) ((2L * (cy * SAMPLES_PER_CELL + s) + 1) * height / (2L * 8 * SAMPLES_PER_CELL));
+                for (int i = 0; i < columns.length; i++) {
+                    int rgb = image.getRGB(columns[i], y);
+                    row[i] = (((rgb >> 16) & 0xff) * 77 + ((rgb >> 8) & 0xff) * 150 + (rgb & 0xff) * 29) >> 8;
+                }
+                for (int i = 0; i < row.length; i++) {
+                    cells[cy * 9 + i / SAMPLES_PER_CELL] += row[i];
+                }
+            }
+        }
+        long hash = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                hash <<= 1;
+                if (cells[y * 9 + x] > cells[y * 9 + x + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        synchronized (this) {
+            hashCount++;
+            totalHashNanos += elapsed;
+            maxHashNanos = Math.max(maxHashNanos, elapsed);
+        }
+        return hash;
+    }
+
+    /**
+     * Find an earlier capture that looks the same
+     * @param hash Hash of the new capture
+     * @param area Screen area of the new capture
+     * @return The closest earlier capture of the same area within the distance, or null
+     */
+    public synchronized Entry findSimilar(long hash, Rectangle area) {
+        Entry best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (Entry entry : recent) {
+            if (!entry.area.equals(area)) {
+                continue;
+            }
+            int distance = Long.bitCount(entry.hash ^ hash);
+            if (distance <= maxDistance && distance < bestDistance) {
+                best = entry;
+                bestDistance = distance;
+            }
+        }
+        if (best != null) {
+            duplicateCount++;
+        }
+        return best;
+    }
+
+    /**
+     * Remember a capture that was written
+     * @param hash Hash of the capture
+     * @param area Screen area of the capture
+     * @param fileName File name of the full image, relative to the screenshots directory
+     * @param thumbnailName File name of the thumbnail, or null
+     */
+    public synchronized void remember(long hash, Rectangle area, String fileName, String thumbnailName) {
+        recent.addFirst(new Entry(hash, new Rectangle(area), fileName, thumbnailName));
+        while (recent.size() > window) {
+            recent.removeLast();
+        }
+    }
+
+    /**
+     * @return Average hash time in milliseconds
+     */
+    public synchronized double getAverageHashMillis() {
+        return hashCount == 0 ? 0.0 : totalHashNanos / (hashCount * 1_000_000.0);
+    }
+
+    /**
+     * @return One line summary for logging
+     */
+    public synchronized String getSummary() {
+        return String.format("screenshot dedup hashed=%d duplicates=%d avgHash=%.2fms maxHash=%.2fms",
+                hashCount, duplicateCount, getAverageHashMillis(), maxHashNanos / 1_000_000.0);
+    }
+
+    /**
+     * A written capture
+     */
+    public static final class Entry {
+        private final long hash;
+        private final Rectangle area;
+        private final String fileName;
+        private final String thumbnailName;
+
+        Entry(long hash, Rectangle area, String fileName, String thumbnailName) {
+            this.hash = hash;
+            this.area = area;
+            this.fileName = fileName;
+            this.thumbnailName = thumbnailName;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getThumbnailName() {
+            return thumbnailName;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.automation;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves the screenshots of the previous run out of the way and removes old runs in the background
+ * At suite start the screenshots directory is renamed into the history directory, which is a single
+ * file system operation, and an empty directory takes its place. The history is then trimmed on a
+ * daemon thread, deleting whole runs in parallel, so no test waits for the deletes. A run is deleted
+ * when it is not among the last screenshot.retention.runs runs, when it is older than
+ * screenshot.retention.max.age.hours, or (oldest first) while the history is larger than
+ * screenshot.retention.max.mb.
+ */
+public final class ScreenshotRetention {
+
+    private final Path screenshotDir;
+    private final Path historyDir;
+    private final int keepRuns;
+    private final long maxAgeMillis;
+    private final long maxBytes;
+    private final AtomicLong deletedRuns = new AtomicLong();
+    private final AtomicLong deletedFiles = new AtomicLong();
+    private final AtomicLong deletedBytes = new AtomicLong();
+    private volatile long cleanupMillis = -1;
+    private Thread cleaner;
+
+    /**
+     * Create a retention policy
+     * @param screenshotDir Directory the current run writes screenshots to
+     * @param historyDir Directory holding the screenshots of earlier runs
+     * @param keepRuns Number of earlier runs to keep (0 = none)
+     * @param maxAgeMillis Maximum age of a kept run (0 = no limit)
+     * @param maxBytes Maximum total size of the kept runs (0 = no limit)
+     */
+    public ScreenshotRetention(Path screenshotDir, Path historyDir, int keepRuns, long maxAgeMillis, long maxBytes) {
+        this.screenshotDir = screenshotDir;
+        this.historyDir = historyDir;
+        this.keepRuns = Math.max(0, keepRuns);
+        this.maxAgeMillis = Math.max(0, maxAgeMillis);
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    /**
+     * Create a retention policy configured by the screenshot.retention.* settings
+     * @return The retention policy
+     */
+    public static ScreenshotRetention fromConfig() {
+        Path base = Paths.get(System.getProperty("user.dir"), "test-output");
+        return new ScreenshotRetention(base.resolve("screenshots"),
+                Paths.get(AutomationConfig.getString("screenshot.retention.dir", base.resolve("screenshot-history").toString())),
+                AutomationConfig.getInt("screenshot.retention.runs", 0),
+                AutomationConfig.getLong("screenshot.retention.max.age.hours", 0) * 3600_000L,
+                AutomationConfig.getLong("screenshot.retention.max.mb", 0) * 1024 * 1024);
+    }
+
+    /**
+     * Move the previous run's screenshots into the history and start trimming the history
+     * Only the rename happens on the calling thread.
+     */
+    public void rotate() {
+        try {
+            Files.createDirectories(historyDir);
+            if (Files.isDirectory(screenshotDir) && !isEmpty(screenshotDir)) {
+                String name = "run-" + new SimpleDateFormat("yyyyMMdd_HHmmss_SSS").format(new Date());
+                Path target = historyDir.resolve(name);
+                try {
+                    Files.move(screenshotDir, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    // History configured on another file system
+                    Files.move(screenshotDir, target);
+                }
+                System.out.println("Previous screenshots moved to " + target);
+            }
+            Files.createDirectories(screenshotDir);
+        } catch (IOException e) {
+            System.err.println("Failed to move old screenshots aside: " + e.getMessage());
+            try {
+                Files.createDirectories(screenshotDir);
+            } catch (IOException ignored) {
+                // Screenshot writing reports its own errors
+            }
+        }
+
+        cleaner = new Thread(this::trimHistory, "screenshot-retention");
+        cleaner.setDaemon(true);
+        cleaner.start();
+    }
+
+    /**
+     * Wait for the background cleanup
+     * @param timeoutMillis Maximum time to wait
+     * @return true if the cleanup finished (an unfinished cleanup continues at the next run)
+     */
+    public boolean await(long timeoutMillis) {
+        if (cleaner == null) {
+            return true;
+        }
+        try {
+            cleaner.join(Math.max(1, timeoutMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !cleaner.isAlive();
+    }
+
+    private void trimHistory() {
+        long start = System.currentTimeMillis();
+        try {
+            List<Path> runs = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(historyDir, "run-*")) {
+                for (Path run : stream) {
+                    if (Files.isDirectory(run)) {
+                        runs.add(run);
+                    }
+                }
+            }
+            // Names carry the time, newest first
+            Collections.sort(runs, Collections.reverseOrder());
+
+            List<Path> expired = new ArrayList<>();
+            long keptBytes = 0;
+            for (int i = 0; i < runs.size(); i++) {
+                Path run = runs.get(i);
+                boolean tooMany = i >= keepRuns;
+                boolean tooOld = maxAgeMillis > 0 && start - Files.getLastModifiedTime(run).toMillis() > maxAgeMillis;
+                boolean tooBig = false;
+                if (!tooMany && !tooOld && maxBytes > 0) {
+                    long size = size(run);
+                    tooBig = keptBytes + size > maxBytes;
+                    if (!tooBig) {
+                        keptBytes += size;
+                    }
+                }
+                if (tooMany || tooOld || tooBig) {
+                    expired.add(run);
+                }
+            }
+
+            expired.parallelStream().forEach(this::delete);
+        } catch (IOException e) {
+            System.err.println("Failed to clean up screenshot history: " + e.getMessage());
+        } finally {
+            cleanupMillis = System.currentTimeMillis() - start;
+        }
+    }
+
+    private void delete(Path run) {
+        try {
+            Files.walkFileTree(run, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    Files.delete(file);
+                    deletedFiles.incrementAndGet();
+                    deletedBytes.addAndGet(attributes.size());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    if (e != null) {
+                        throw e;
+                    }
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            deletedRuns.incrementAndGet();
+        } catch (IOException e) {
+            System.err.println("Failed to delete old screenshots in " + run + ": " + e.getMessage());
+        }
+    }
+
+    private static long size(Path dir) throws IOException {
+        AtomicLong total = new AtomicLong();
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                total.addAndGet(attributes.size());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return total.get();
+    }
+
+    private static boolean isEmpty(Path dir) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            return !stream.iterator().hasNext();
+        }
+    }
+
+    /**
+     * @return One line summary for logging
+     */
+    public String getSummary() {
+        return String.format("screenshot retention deleted runs=%d files=%d size=%dKB in %s",
+                deletedRuns.get(), deletedFiles.get(), deletedBytes.get() / 1024,
+                cleanupMillis < 0 ? "progress" : cleanupMillis + "ms");
+    }
+}
@@ -0,0 +1,350 @@
+package com.automation;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Background writer for screenshots
+ * The test thread only hands off the captured image, scaling, PNG/JPEG encoding and disk I/O
+ * happen on a small pool of encoder threads fed by a bounded queue.
+ * When the queue is full the caller blocks until an encoder frees a slot (backpressure).
+ * Files ending in .jpg are written as JPEG with the configured quality, anything else as PNG.
+ */
+public class ScreenshotSink {
+
+    private final ThreadPoolExecutor encoders;
+    private final BlockingQueue<Runnable> queue;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong totalEncodeNanos = new AtomicLong();
+    private final AtomicLong maxEncodeNanos = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final Object drainLock = new Object();
+    private final float jpegQuality;
+
+    /**
+     * Create a sink
+     * @param threads Number of encoder threads
+     * @param queueCapacity Maximum number of screenshots waiting to be encoded
+     */
+    public ScreenshotSink(int threads, int queueCapacity) {
+        this(threads, queueCapacity, 0.8f);
+    }
+
+    /**
+     * Create a sink
+     * @param threads Number of encoder threads
+     * @param queueCapacity Maximum number of screenshots waiting to be encoded
+     * @param jpegQuality Quality of JPEG files, 0.0 to 1.0
+     */
+    public ScreenshotSink(int threads, int queueCapacity, float jpegQuality) {
+        this.jpegQuality = jpegQuality;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        int poolSize = Math.max(1, threads);
+        this.encoders = new ThreadPoolExecutor(poolSize, poolSize, 30, TimeUnit.SECONDS,
+                queue, new EncoderThreadFactory(), new BlockingSubmitPolicy());
+    }
+
+    /**
+     * Create a sink sized from the screenshot.encoder.threads and screenshot.queue.capacity settings
+     * JPEG quality comes from screenshot.jpeg.quality
+     * @return New sink
+     */
+    public static ScreenshotSink fromConfig() {
+        int defaultThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        int threads = AutomationConfig.getInt("screenshot.encoder.threads", defaultThreads);
+        int capacity = AutomationConfig.getInt("screenshot.queue.capacity", 8);
+        float quality = (float) AutomationConfig.getDouble("screenshot.jpeg.quality", 0.8);
+        return new ScreenshotSink(threads, capacity, quality);
+    }
+
+    /**
+     * Queue an image to be written
+     * Blocks while the queue is full
+     * @param image The captured image (must not be modified by the caller afterwards)
+     * @param target The file to write (.jpg for JPEG, PNG otherwise)
+     */
+    public void submit(BufferedImage image, File target) {
+        submitTask(() -> image, target);
+    }
+
+    /**
+     * Queue a scaled down copy of an image to be written
+     * The scaling runs on an encoder thread, in parallel with the encoding of the full image
+     * @param image The captured image (must not be modified by the caller afterwards)
+     * @param target The file to write (.jpg for JPEG, PNG otherwise)
+     * @param maxWidth Width of the copy, images that are already narrower are not scaled
+     */
+    public void submitThumbnail(BufferedImage image, File target, int maxWidth) {
+        submitTask(() -> scaleToWidth(image, maxWidth), target);
+    }
+
+    private void submitTask(Supplier<BufferedImage> image, File target) {
+        pending.incrementAndGet();
+        submittedCount.incrementAndGet();
+        String testName = TestSession.currentTestName();
+        try {
+            encoders.execute(() -> encode(image, target, testName));
+        } catch (RuntimeException e) {
+            completeOne();
+            throw e;
+        }
+        updateMaxQueueDepth();
+    }
+
+    /**
+     * Wait until every queued screenshot has been written
+     * @param timeoutMillis Maximum time to wait
+     * @return true if the queue was drained, false on timeout
+     */
+    public boolean drain(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (drainLock) {
+            while (pending.get() > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    System.err.println("Screenshot sink drain timed out with " + pending.get() + " pending screenshots");
+                    return false;
+                }
+                try {
+                    drainLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drain the queue and stop the encoder threads
+     * @param timeoutMillis Maximum time to wait for pending screenshots
+     */
+    public void shutdown(long timeoutMillis) {
+        drain(timeoutMillis);
+        encoders.shutdown();
+        try {
+            encoders.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Number of screenshots waiting in the queue (not yet picked up by an encoder)
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return Highest queue depth seen since the sink was created
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * @return Number of screenshots queued or being encoded
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return Total size of the written files in bytes
+     */
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    /**
+     * @return Average scale, encode and write time in milliseconds
+     */
+    public double getAverageEncodeMillis() {
+        long count = writtenCount.get() + failedCount.get();
+        return count == 0 ? 0.0 : totalEncodeNanos.get() / (count * 1_000_000.0);
+    }
+
+    /**
+     * @return Slowest scale, encode and write time in milliseconds
+     */
+    public double getMaxEncodeMillis() {
+        return maxEncodeNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * @return One line summary of the sink counters for logging
+     */
+    public String getSummary() {
+        return String.format("screenshots submitted=%d written=%d failed=%d pending=%d maxQueueDepth=%d avgEncode=%.1fms maxEncode=%.1fms bytes=%d",
+                getSubmittedCount(), getWrittenCount(), getFailedCount(), getPendingCount(),
+                getMaxQueueDepth(), getAverageEncodeMillis(), getMaxEncodeMillis(), getBytesWritten());
+    }
+
+    private void encode(Supplier<BufferedImage> image, File target, String testName) {
+        long start = System.nanoTime();
+        try {
+            writeImage(image.get(), target, jpegQuality);
+            writtenCount.incrementAndGet();
+            bytesWritten.addAndGet(target.length());
+        } catch (Exception e) {
+            failedCount.incrementAndGet();
+            System.err.println("Failed to write screenshot " + target.getName() + ": " + e.getMessage());
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            LatencyMetrics.getInstance().record(LatencyMetrics.Operation.ENCODE, null, testName, elapsed);
+            totalEncodeNanos.addAndGet(elapsed);
+            maxEncodeNanos.accumulateAndGet(elapsed, Math::max);
+            completeOne();
+        }
+    }
+
+    /**
+     * Write an image as JPEG (.jpg/.jpeg files) or PNG
+     * @param image The image
+     * @param target The file to write
+     * @param jpegQuality Quality of JPEG files, 0.0 to 1.0
+     */
+    public static void writeImage(BufferedImage image, File target, float jpegQuality) throws IOException {
+        File parent = target.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        String name = target.getName().toLowerCase();
+        if (!name.endsWith(".jpg") && !name.endsWith(".jpeg")) {
+            ImageIO.write(image, "PNG", target);
+            return;
+        }
+        // JPEG has no alpha channel
+        BufferedImage rgb = image;
+        if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+            rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = rgb.createGraphics();
+            g.drawImage(image, 0, 0, null);
+            g.dispose();
+        }
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG writer available");
+        }
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(Math.max(0f, Math.min(1f, jpegQuality)));
+        target.delete();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Scale an image down to a width, keeping the aspect ratio
+     * Halves the size step by step with bilinear filtering, which keeps text readable at a fraction
+     * of the cost of area averaging.
+     * @param image The image
+     * @param maxWidth Target width
+     * @return The scaled image, or the image itself if it is not wider than maxWidth
+     */
+    public static BufferedImage scaleToWidth(BufferedImage image, int maxWidth) {
+        if (maxWidth <= 0 || image.getWidth() <= maxWidth) {
+            return image;
+        }
+        int targetHeight = Math.max(1, (int) Math.round((double) image.getHeight() * maxWidth / image.getWidth()));
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(maxWidth, width / 2);
+            height = width == maxWidth ? targetHeight : Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = step.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(current, 0, 0, width, height, null);
+            g.dispose();
+            current = step;
+        } while (width > maxWidth);
+        return current;
+    }
+
+    private void completeOne() {
+        if (pending.decrementAndGet() == 0) {
+            synchronized (drainLock) {
+                drainLock.notifyAll();
+            }
+        }
+    }
+
+    private void updateMaxQueueDepth() {
+        int depth = queue.size();
+        maxQueueDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    /**
+     * Blocks the submitting thread until the queue has room
+     * If the pool is already shut down the screenshot is written on the caller thread so it is never lost
+     */
+    private static class BlockingSubmitPolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                task.run();
+                return;
+            }
+            try {
+                executor.getQueue().put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                task.run();
+            }
+        }
+    }
+
+    private static class EncoderThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "screenshot-encoder-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
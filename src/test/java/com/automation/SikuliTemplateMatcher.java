@@ -0,0 +1,36 @@
+package com.automation;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import org.sikuli.script.Finder;
+import org.sikuli.script.Match;
+import org.sikuli.script.Pattern;
+
+/**
+ * TemplateMatcher backed by the SikuliX Finder (OpenCV) working on an already captured frame
+ */
+public class SikuliTemplateMatcher implements TemplateMatcher {
+
+    @Override
+    public MatchResult find(ScreenFrame frame, Rectangle searchArea, TemplateImage template, double minScore) {
+        Rectangle area = frame.toFrameArea(searchArea);
+        if (area == null || area.width < template.getWidth() || area.height < template.getHeight()) {
+            return null;
+        }
+
+        BufferedImage image = frame.getImage().getSubimage(area.x, area.y, area.width, area.height);
+        Finder finder = new Finder(image);
+        try {
+            finder.find(new Pattern(template.getPattern()).similar(minScore));
+            if (!finder.hasNext()) {
+                return null;
+            }
+            Match match = finder.next();
+            return new MatchResult(template.getName(),
+                    frame.getOriginX() + area.x + match.x, frame.getOriginY() + area.y + match.y,
+                    match.w, match.h, match.getScore());
+        } finally {
+            finder.destroy();
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.automation;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.Status;
+
+/**
+ * Step events of the running tests, written to the console, the Extent report and a JSONL trace
+ * Test threads only copy the event fields (step, image, score, duration, ...) into a slot of a
+ * ring buffer that is allocated once; messages are built and written by a background thread, so
+ * a test never waits for console or file output. Each event becomes one line of the
+ * steplog.file trace. When the ring is full the test thread waits for a free slot rather than
+ * losing events, and a warning is printed the first time that happens. The console copy can be
+ * turned off (steplog.console=false), failures and errors still go to System.err then.
+ * The Extent calls hold the report lock passed in, the one report flushes synchronize on, so an
+ * event is never added while another thread's flush walks the report.
+ * Call sync() before a test's report entry is flushed or released.
+ */
+public final class StepLog {
+
+    /**
+     * What an event describes, decides how its message is built
+     */
+    public enum Kind { STEP, IMAGE_FOUND, IMAGE_NOT_FOUND, SCREENSHOT, ATTACHMENT, WAIT, TEXT, ERROR }
+
+    private final Event[] ring;
+    private final Writer trace;
+    private final boolean console;
+    private final Object reportLock;
+    private final Thread drainer;
+    private long head;
+    private long tail;
+    private boolean closed;
+    private long blockedCount;
+    private long written;
+
+    /**
+     * Create a step log and start its drain thread
+     * @param capacity Number of events the ring holds
+     * @param traceFile JSONL trace file, or null for no trace
+     * @param append true to add to an existing trace instead of replacing it
+     * @param console true to print every event to the console, false for failures and errors only
+     * @param reportLock Lock held around the Extent calls, the one report flushes synchronize on
+     */
+    public StepLog(int capacity, File traceFile, boolean append, boolean console, Object reportLock) {
+        ring = new Event[Math.max(16, capacity)];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new Event();
+        }
+        trace = openTrace(traceFile, append);
+        this.console = console;
+        this.reportLock = reportLock;
+        drainer = new Thread(this::drain, "step-log");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Create a step log configured by the steplog.* settings
+     * Coordinator workers write their own trace next to the main one and append to it.
+     * @param reportLock Lock held around the Extent calls, the one report flushes synchronize on
+     * @return The step log
+     */
+    public static StepLog fromConfig(Object reportLock) {
+        String defaultFile = TestNGExecutor.isWorker()
+                ? "test-output/step-events-worker-" + AutomationConfig.getString("executor.worker.id", "1") + ".jsonl"
+                : "test-output/step-events.jsonl";
+        String file = AutomationConfig.getString("steplog.file", defaultFile);
+        return new StepLog(AutomationConfig.getInt("steplog.capacity", 4096),
+                file.equalsIgnoreCase("none") ? null : new File(file), TestNGExecutor.isWorker(),
+                AutomationConfig.getBoolean("steplog.console", true), reportLock);
+    }
+
+    private static Writer openTrace(File file, boolean append) {
+        if (file == null) {
+            return null;
+        }
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("Failed to open step trace " + file.getPath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Record a plain step
+     * @param test Test to log to, or null before the test is created
+     * @param status Extent status of the step
+     * @param step What happened
+     */
+    public void step(ExtentTest test, Status status, String step) {
+        record(test, Kind.STEP, status, step, null, Double.NaN, -1, -1, null);
+    }
+
+    /**
+     * Record an event
+     * @param test Test to log to, or null before the test is created
+     * @param kind What the event describes
+     * @param status Extent status of the event
+     * @param step Step name or message
+     * @param target Image or file the event is about, or null
+     * @param score Match score, or NaN
+     * @param count Number of items (characters, frames, images), or -1
+     * @param durationNanos Duration of the step, or -1
+     * @param detail Extra text, for screenshots and attachments the HTML shown in the report, or null
+     */
+    public void record(ExtentTest test, Kind kind, Status status, String step, String target, double score,
+                       long count, long durationNanos, String detail) {
+        boolean firstBlock = false;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            boolean blocked = false;
+            boolean interrupted = false;
+            while (head - tail >= ring.length) {
+                blocked = true;
+                interrupted |= waitQuietly();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (blocked) {
+                firstBlock = blockedCount == 0;
+                blockedCount++;
+            }
+            Event event = ring[(int) (head % ring.length)];
+            event.time = System.currentTimeMillis();
+            event.thread = Thread.currentThread().getName();
+            event.test = test;
+            event.kind = kind;
+            event.status = status;
+            event.step = step;
+            event.target = target;
+            event.score = score;
+            event.count = count;
+            event.durationNanos = durationNanos;
+            event.detail = detail;
+            head++;
+            notifyAll();
+        }
+        if (firstBlock) {
+            System.err.println("WARNING: step log ring full (" + ring.length + " events), " + Thread.currentThread().getName()
+                    + " waited for the writer; raise steplog.capacity or set steplog.console=false");
+        }
+    }
+
+    /**
+     * Wait until every event recorded so far is written and flush the trace
+     */
+    public void sync() {
+        synchronized (this) {
+            long target = head;
+            boolean interrupted = false;
+            while (written < target && drainer.isAlive()) {
+                interrupted |= waitQuietly();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushTrace();
+    }
+
+    /**
+     * Write the remaining events, stop the drain thread and close the trace
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            drainer.join(10000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (trace != null) {
+            try {
+                trace.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close step trace: " + e.getMessage());
+            }
+        }
+    }
+
+    private void drain() {
+        Event copy = new Event();
+        while (true) {
+            synchronized (this) {
+                while (tail == head && !closed) {
+                    // Nobody interrupts the drain thread on purpose, events are written until close
+                    waitQuietly();
+                }
+                if (tail == head) {
+                    return;
+                }
+                // Copy out so the slot can be reused while the event is written
+                copy.copyFrom(ring[(int) (tail % ring.length)]);
+                ring[(int) (tail % ring.length)].clear();
+                tail++;
+                notifyAll();
+            }
+            write(copy);
+            synchronized (this) {
+                written++;
+                notifyAll();
+            }
+        }
+    }
+
+    private void write(Event event) {
+        String message = message(event);
+        try {
+            if (event.status == Status.FAIL || event.kind == Kind.ERROR) {
+                System.err.println(message);
+            } else if (console) {
+                System.out.println(message);
+            }
+            if (event.test != null) {
+                synchronized (reportLock) {
+                    event.test.log(event.status, message);
+                    if (event.kind == Kind.SCREENSHOT || event.kind == Kind.ATTACHMENT) {
+                        if (event.detail != null) {
+                            event.test.log(event.status, event.detail);
+                        } else if (event.target != null) {
+                            event.test.addScreenCaptureFromPath("screenshots/" + event.target, event.step);
+                        }
+                    }
+                }
+            }
+            if (trace != null) {
+                trace.write(toJson(event, message));
+                trace.write('\n');
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to write step event: " + e.getMessage());
+        }
+    }
+
+    private static String message(Event event) {
+        StringBuilder text = new StringBuilder();
+        switch (event.kind) {
+            case IMAGE_FOUND:
+                text.append("Found ").append(event.target).append(" with match score: ").append(event.score);
+                break;
+            case IMAGE_NOT_FOUND:
+                text.append(event.target).append(" image not found on screen");
+                break;
+            case SCREENSHOT:
+                text.append("Screenshot captured: ").append(event.target);
+                break;
+            case ATTACHMENT:
+                text.append(event.step).append(": ").append(event.target);
+                break;
+            case WAIT:
+                text.append("Waited for the screen to settle");
+                break;
+            case TEXT:
+                text.append("Entered ").append(event.count).append(" characters");
+                break;
+            default:
+                text.append(event.step);
+                break;
+        }
+        if (event.kind != Kind.STEP && event.kind != Kind.ERROR && event.kind != Kind.ATTACHMENT && event.step != null) {
+            text.append(" - ").append(event.step);
+        }
+        if (event.durationNanos >= 0) {
+            text.append(" (").append(event.durationNanos / 1_000_000).append(" ms)");
+        }
+        if (event.count >= 0 && event.kind != Kind.TEXT) {
+            text.append(" (").append(event.count).append(')');
+        }
+        if (event.detail != null && event.kind != Kind.SCREENSHOT && event.kind != Kind.ATTACHMENT) {
+            text.append(" [").append(event.detail).append(']');
+        }
+        return text.toString();
+    }
+
+    private static String toJson(Event event, String message) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"time\":").append(event.time);
+        appendField(json, "thread", event.thread);
+        appendField(json, "test", event.test == null ? null : event.test.getModel().getName());
+        appendField(json, "kind", event.kind.name());
+        appendField(json, "status", event.status.toString());
+        appendField(json, "step", event.step);
+        appendField(json, "target", event.target);
+        if (!Double.isNaN(event.score)) {
+            json.append(",\"score\":").append(event.score);
+        }
+        if (event.count >= 0) {
+            json.append(",\"count\":").append(event.count);
+        }
+        if (event.durationNanos >= 0) {
+            json.append(",\"durationMs\":").append(event.durationNanos / 1_000_000.0);
+        }
+        appendField(json, "message", message);
+        return json.append('}').toString();
+    }
+
+    private static void appendField(StringBuilder json, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        json.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    private void flushTrace() {
+        if (trace == null) {
+            return;
+        }
+        try {
+            trace.flush();
+        } catch (IOException e) {
+            System.err.println("Failed to flush step trace: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Wait on this monitor for up to a second
+     * The interrupt flag is cleared rather than set again, so a loop around this keeps waiting
+     * instead of spinning; the caller sets the flag again once it is done.
+     * @return true if the thread was interrupted
+     */
+    private boolean waitQuietly() {
+        try {
+            wait(1000);
+            return false;
+        } catch (InterruptedException e) {
+            return true;
+        }
+    }
+
+    /**
+     * @return One line summary for logging
+     */
+    public synchronized String getSummary() {
+        return String.format("step log events=%d pending=%d capacity=%d blocked=%d",
+                written, head - written, ring.length, blockedCount);
+    }
+
+    private static final class Event {
+        private long time;
+        private String thread;
+        private ExtentTest test;
+        private Kind kind;
+        private Status status;
+        private String step;
+        private String target;
+        private double score;
+        private long count;
+        private long durationNanos;
+        private String detail;
+
+        void copyFrom(Event other) {
+            time = other.time;
+            thread = other.thread;
+            test = other.test;
+            kind = other.kind;
+            status = other.status;
+            step = other.step;
+            target = other.target;
+            score = other.score;
+            count = other.count;
+            durationNanos = other.durationNanos;
+            detail = other.detail;
+        }
+
+        void clear() {
+            test = null;
+            step = null;
+            target = null;
+            detail = null;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.automation;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openqa.selenium.Alert;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.NoSuchWindowException;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WindowType;
+import org.openqa.selenium.logging.Logs;
+
+/**
+ * In-memory WebDriver that needs no browser
+ * Keeps just enough state (URL, cookies, window handles, quit flag) to exercise the browser pool
+ * logic on a machine without Chrome. Element lookups always find nothing.
+ */
+public class StubWebDriver implements WebDriver {
+
+    private static final AtomicInteger SESSION_COUNTER = new AtomicInteger();
+
+    private final String sessionId;
+    private final Map<String, Cookie> cookies = new LinkedHashMap<>();
+    private final Set<String> windowHandles = new LinkedHashSet<>();
+    private final AtomicInteger windowCounter = new AtomicInteger();
+    private String currentHandle;
+    private String currentUrl = "about:blank";
+    private boolean quit;
+
+    /**
+     * Create a stub session
+     * @param startupMillis Simulated browser launch time
+     */
+    public StubWebDriver(long startupMillis) {
+        this.sessionId = "stub-" + SESSION_COUNTER.incrementAndGet();
+        if (startupMillis > 0) {
+            try {
+                Thread.sleep(startupMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        currentHandle = openWindow();
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public synchronized boolean isQuit() {
+        return quit;
+    }
+
+    @Override
+    public synchronized void get(String url) {
+        checkSession();
+        currentUrl = url;
+    }
+
+    @Override
+    public synchronized String getCurrentUrl() {
+        checkSession();
+        return currentUrl;
+    }
+
+    @Override
+    public synchronized String getTitle() {
+        checkSession();
+        return "";
+    }
+
+    @Override
+    public List<WebElement> findElements(By by) {
+        checkSession();
+        return Collections.emptyList();
+    }
+
+    @Override
+    public WebElement findElement(By by) {
+        checkSession();
+        throw new NoSuchElementException("Stub driver has no elements: " + by);
+    }
+
+    @Override
+    public synchronized String getPageSource() {
+        checkSession();
+        return "<html><head></head><body></body></html>";
+    }
+
+    @Override
+    public synchronized void close() {
+        checkSession();
+        windowHandles.remove(currentHandle);
+        currentHandle = null;
+        if (windowHandles.isEmpty()) {
+            quit = true;
+        }
+    }
+
+    @Override
+    public synchronized void quit() {
+        quit = true;
+        windowHandles.clear();
+        cookies.clear();
+    }
+
+    @Override
+    public synchronized Set<String> getWindowHandles() {
+        checkSession();
+        return new LinkedHashSet<>(windowHandles);
+    }
+
+    @Override
+    public synchronized String getWindowHandle() {
+        checkSession();
+        if (currentHandle == null) {
+            throw new NoSuchWindowException("Current window was closed");
+        }
+        return currentHandle;
+    }
+
+    @Override
+    public TargetLocator switchTo() {
+        checkSession();
+        return new StubTargetLocator();
+    }
+
+    @Override
+    public Navigation navigate() {
+        checkSession();
+        return new StubNavigation();
+    }
+
+    @Override
+    public Options manage() {
+        checkSession();
+        return new StubOptions();
+    }
+
+    private synchronized String openWindow() {
+        String handle = sessionId + "-window-" + windowCounter.incrementAndGet();
+        windowHandles.add(handle);
+        return handle;
+    }
+
+    private synchronized void checkSession() {
+        if (quit) {
+            throw new NoSuchSessionException("Stub session " + sessionId + " has quit");
+        }
+    }
+
+    private class StubTargetLocator implements TargetLocator {
+        @Override
+        public WebDriver frame(int index) {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver frame(String nameOrId) {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver frame(WebElement frameElement) {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver parentFrame() {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver window(String nameOrHandle) {
+            synchronized (StubWebDriver.this) {
+                if (!windowHandles.contains(nameOrHandle)) {
+                    throw new NoSuchWindowException("No window " + nameOrHandle);
+                }
+                currentHandle = nameOrHandle;
+            }
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver newWindow(WindowType typeHint) {
+            synchronized (StubWebDriver.this) {
+                currentHandle = openWindow();
+                currentUrl = "about:blank";
+            }
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver defaultContent() {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebElement activeElement() {
+            throw new NoSuchElementException("Stub driver has no elements");
+        }
+
+        @Override
+        public Alert alert() {
+            throw new UnsupportedOperationException("Stub driver has no alerts");
+        }
+    }
+
+    private class StubNavigation implements Navigation {
+        @Override
+        public void back() {
+        }
+
+        @Override
+        public void forward() {
+        }
+
+        @Override
+        public void to(String url) {
+            get(url);
+        }
+
+        @Override
+        public void to(URL url) {
+            get(url.toString());
+        }
+
+        @Override
+        public void refresh() {
+        }
+    }
+
+    private class StubOptions implements Options {
+        @Override
+        public void addCookie(Cookie cookie) {
+            synchronized (StubWebDriver.this) {
+                cookies.put(cookie.getName(), cookie);
+            }
+        }
+
+        @Override
+        public void deleteCookieNamed(String name) {
+            synchronized (StubWebDriver.this) {
+                cookies.remove(name);
+            }
+        }
+
+        @Override
+        public void deleteCookie(Cookie cookie) {
+            deleteCookieNamed(cookie.getName());
+        }
+
+        @Override
+        public void deleteAllCookies() {
+            synchronized (StubWebDriver.this) {
+                cookies.clear();
+            }
+        }
+
+        @Override
+        public Set<Cookie> getCookies() {
+            synchronized (StubWebDriver.this) {
+                return new LinkedHashSet<>(cookies.values());
+            }
+        }
+
+        @Override
+        public Cookie getCookieNamed(String name) {
+            synchronized (StubWebDriver.this) {
+                return cookies.get(name);
+            }
+        }
+
+        @Override
+        public Timeouts timeouts() {
+            return new StubTimeouts();
+        }
+
+        @Override
+        public Window window() {
+            return new StubWindow();
+        }
+
+        @Override
+        public Logs logs() {
+            throw new UnsupportedOperationException("Stub driver has no logs");
+        }
+    }
+
+    private class StubTimeouts implements Timeouts {
+        @Deprecated
+        @Override
+        public Timeouts implicitlyWait(long time, TimeUnit unit) {
+            return this;
+        }
+
+        @Deprecated
+        @Override
+        public Timeouts setScriptTimeout(long time, TimeUnit unit) {
+            return this;
+        }
+
+        @Deprecated
+        @Override
+        public Timeouts pageLoadTimeout(long time, TimeUnit unit) {
+            return this;
+        }
+    }
+
+    private class StubWindow implements Window {
+        @Override
+        public Dimension getSize() {
+            return new Dimension(1920, 1080);
+        }
+
+        @Override
+        public void setSize(Dimension targetSize) {
+        }
+
+        @Override
+        public Point getPosition() {
+            return new Point(0, 0);
+        }
+
+        @Override
+        public void setPosition(Point targetPosition) {
+        }
+
+        @Override
+        public void maximize() {
+        }
+
+        @Override
+        public void minimize() {
+        }
+
+        @Override
+        public void fullscreen() {
+        }
+    }
+}
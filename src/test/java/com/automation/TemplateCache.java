@@ -0,0 +1,215 @@
+package com.automation;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.imageio.ImageIO;
+
+/**
+ * Process-wide cache of decoded template images
+ * Each template is read from the resources folder once and kept in memory together with its
+ * grayscale form. Entries are keyed by image name only, every similarity shares the decoded image,
+ * and are evicted least recently used first when the total size goes over the configured memory cap.
+ * Files are decoded outside the cache lock: a thread asking for a template that is being loaded waits
+ * for that one load, lookups of other templates are not held up.
+ */
+public final class TemplateCache {
+
+    private static final TemplateCache INSTANCE = new TemplateCache(
+            AutomationConfig.getString("template.dir", System.getProperty("user.dir") + "/src/resources"),
+            AutomationConfig.getLong("template.cache.max.bytes", 64L * 1024 * 1024));
+
+    private final File templateDir;
+    private final long maxBytes;
+    private final LinkedHashMap<String, TemplateImage> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Loads in progress by image name
+    private final ConcurrentMap<String, CompletableFuture<TemplateImage>> loading = new ConcurrentHashMap<>();
+    private long currentBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long totalLoadNanos;
+
+    /**
+     * Create a cache
+     * @param templateDir Folder holding the template images
+     * @param maxBytes Memory cap for the decoded images
+     */
+    public TemplateCache(String templateDir, long maxBytes) {
+        this.templateDir = new File(templateDir);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return The shared cache reading from src/resources (or the template.dir setting)
+     */
+    public static TemplateCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get a template, loading it from disk on the first request
+     * @param imageName The name of the image file (e.g., "WindowsStartButton.jpg")
+     * @param similarity Similarity threshold (0.0 to 1.0)
+     * @return The cached template or null if the file doesn't exist or can't be decoded
+     */
+    public TemplateImage get(String imageName, double similarity) {
+        TemplateImage template = lookup(imageName);
+        if (template != null) {
+            return template.withSimilarity(similarity);
+        }
+
+        CompletableFuture<TemplateImage> future = new CompletableFuture<>();
+        CompletableFuture<TemplateImage> running = loading.putIfAbsent(imageName, future);
+        if (running != null) {
+            template = running.join();
+            return template == null ? null : template.withSimilarity(similarity);
+        }
+
+        try {
+            // Another thread may have finished loading it between the lookup and putIfAbsent
+            synchronized (this) {
+                template = entries.get(imageName);
+            }
+            if (template == null) {
+                template = load(imageName, similarity);
+                if (template != null) {
+                    store(imageName, template);
+                }
+            }
+            future.complete(template);
+        } catch (RuntimeException e) {
+            future.complete(null);
+            throw e;
+        } finally {
+            loading.remove(imageName, future);
+        }
+        return template == null ? null : template.withSimilarity(similarity);
+    }
+
+    /**
+     * Load every image in the template folder so the first lookup is already a hit
+     * @param similarity Similarity threshold to preload the templates with
+     * @return Number of templates loaded
+     */
+    public int preload(double similarity) {
+        File[] files = templateDir.listFiles((dir, name) -> {
+            String lower = name.toLowerCase();
+            return lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".png");
+        });
+        int count = 0;
+        if (files != null) {
+            for (File file : files) {
+                if (get(file.getName(), similarity) != null) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Remove all entries (statistics are kept)
+     */
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    /**
+     * @return Fraction of lookups served from memory (0.0 to 1.0)
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * @return One line summary of the cache statistics for logging
+     */
+    public synchronized String getSummary() {
+        return String.format("template cache entries=%d bytes=%d hits=%d misses=%d hitRate=%.1f%% evictions=%d totalLoad=%.1fms",
+                entries.size(), currentBytes, hits, misses, getHitRate() * 100, evictions, totalLoadNanos / 1_000_000.0);
+    }
+
+    private synchronized TemplateImage lookup(String imageName) {
+        TemplateImage template = entries.get(imageName);
+        if (template != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return template;
+    }
+
+    private synchronized void store(String imageName, TemplateImage template) {
+        entries.put(imageName, template);
+        currentBytes += template.getSizeInBytes();
+        evictIfNeeded();
+    }
+
+    private synchronized void addLoadTime(long nanos) {
+        totalLoadNanos += nanos;
+    }
+
+    private TemplateImage load(String imageName, double similarity) {
+        File imageFile = new File(templateDir, imageName);
+        if (!imageFile.exists()) {
+            System.out.println("ERROR: Image file not found at: " + imageFile.getAbsolutePath());
+            System.out.println("Please ensure " + imageName + " exists in " + templateDir.getPath() + " folder");
+            return null;
+        }
+
+        long start = System.nanoTime();
+        try {
+            BufferedImage image = ImageIO.read(imageFile);
+            if (image == null) {
+                System.out.println("ERROR: Image file could not be decoded: " + imageFile.getAbsolutePath());
+                return null;
+            }
+            TemplateImage template = new TemplateImage(imageName, similarity, image);
+            System.out.println("Template loaded: " + imageName + " (" + image.getWidth() + "x" + image.getHeight() + ")");
+            return template;
+        } catch (Exception e) {
+            System.out.println("ERROR: Failed to load image " + imageName + ": " + e.getMessage());
+            return null;
+        } finally {
+            addLoadTime(System.nanoTime() - start);
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, TemplateImage>> iterator = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && entries.size() > 1 && iterator.hasNext()) {
+            Map.Entry<String, TemplateImage> eldest = iterator.next();
+            currentBytes -= eldest.getValue().getSizeInBytes();
+            iterator.remove();
+            evictions++;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.automation;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.sikuli.script.Pattern;
+
+/**
+ * A decoded template image held by the TemplateCache
+ * Keeps the color image for SikuliX and a grayscale copy for the in-house image comparison code.
+ * The decoded pixels are shared by every similarity the template is used with, see withSimilarity.
+ */
+public final class TemplateImage {
+
+    private final String name;
+    private final double similarity;
+    private final BufferedImage image;
+    private final GrayImage gray;
+    private final GrayPyramid pyramid;
+    // SikuliX patterns by similarity, shared by all views of the same decoded image
+    private final ConcurrentMap<Double, Pattern> patterns;
+
+    public TemplateImage(String name, double similarity, BufferedImage image) {
+        this.name = name;
+        this.similarity = similarity;
+        this.image = image;
+        this.gray = GrayImage.fromBufferedImage(image);
+        this.pyramid = new GrayPyramid(gray);
+        this.patterns = new ConcurrentHashMap<>();
+    }
+
+    private TemplateImage(TemplateImage decoded, double similarity) {
+        this.name = decoded.name;
+        this.similarity = similarity;
+        this.image = decoded.image;
+        this.gray = decoded.gray;
+        this.pyramid = decoded.pyramid;
+        this.patterns = decoded.patterns;
+    }
+
+    /**
+     * Get the same template with another similarity threshold
+     * The decoded images are shared, nothing is copied.
+     * @param similarity Similarity threshold (0.0 to 1.0)
+     * @return This template if the similarity matches, otherwise a view with the new similarity
+     */
+    public TemplateImage withSimilarity(double similarity) {
+        return similarity == this.similarity ? this : new TemplateImage(this, similarity);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getSimilarity() {
+        return similarity;
+    }
+
+    /**
+     * @return The decoded color image
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * @return Grayscale copy of the image
+     */
+    public GrayImage getGray() {
+        return gray;
+    }
+
+    /**
+     * @param level Pyramid level (0 = full resolution, each level halves the size)
+     * @return Grayscale image at that level
+     */
+    public GrayImage getGrayLevel(int level) {
+        return pyramid.getLevel(level);
+    }
+
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    public int getHeight() {
+        return image.getHeight();
+    }
+
+    /**
+     * Get the SikuliX pattern for this template
+     * The pattern is built from the already decoded image so the file is not read again.
+     * @return Pattern with the template similarity applied
+     */
+    public Pattern getPattern() {
+        return patterns.computeIfAbsent(similarity, s -> new Pattern(image).similar(s));
+    }
+
+    /**
+     * @return Approximate memory used by the decoded images in bytes, grayscale pyramid included
+     */
+    public long getSizeInBytes() {
+        return (long) image.getWidth() * image.getHeight() * 4 + pyramid.getSizeInBytes();
+    }
+}
@@ -0,0 +1,47 @@
+package com.automation;
+
+import java.awt.Rectangle;
+
+/**
+ * Strategy for locating a template image inside a captured screen frame
+ */
+public interface TemplateMatcher {
+
+    /**
+     * Find the best match of a template inside part of a frame
+     * @param frame The captured screen
+     * @param searchArea Area to search in screen coordinates, or null for the whole frame
+     * @param template The template to look for
+     * @param minScore Minimum score (0.0 to 1.0) for a match to be reported
+     * @return The best match or null if nothing scored at least minScore
+     */
+    MatchResult find(ScreenFrame frame, Rectangle searchArea, TemplateImage template, double minScore);
+
+    /**
+     * Find the best match of a template anywhere in a frame
+     * @param frame The captured screen
+     * @param template The template to look for
+     * @param minScore Minimum score (0.0 to 1.0) for a match to be reported
+     * @return The best match or null if nothing scored at least minScore
+     */
+    default MatchResult find(ScreenFrame frame, TemplateImage template, double minScore) {
+        return find(frame, null, template, minScore);
+    }
+
+    /**
+     * Create the matcher selected by the image.matcher setting
+     * "ncc" selects the in-house NccTemplateMatcher, "finder" the SikuliX Finder on captured frames.
+     * Any other value (default "screen") returns null, meaning lookups go through Screen.exists.
+     * @return The configured matcher or null
+     */
+    static TemplateMatcher fromConfig() {
+        String name = AutomationConfig.getString("image.matcher", "screen");
+        if (name.equalsIgnoreCase("ncc")) {
+            return new NccTemplateMatcher();
+        }
+        if (name.equalsIgnoreCase("finder")) {
+            return new SikuliTemplateMatcher();
+        }
+        return null;
+    }
+}
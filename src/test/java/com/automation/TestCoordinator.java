@@ -0,0 +1,476 @@
+package com.automation;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlInclude;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.reporter.ExtentSparkReporter;
+import com.aventstack.extentreports.reporter.configuration.Theme;
+
+/**
+ * Runs the suite on local worker JVMs that pull one test at a time
+ * The coordinator listens on a loopback socket and either starts executor.workers worker JVMs
+ * itself or waits for that many workers to connect (executor.spawn.workers=false). Each worker
+ * asks for the next test as soon as it finished the previous one, so fast workers simply run
+ * more tests. When a worker connection drops, only the test it was running goes back to the
+ * front of the queue. Every worker writes its Extent report as JSON and the coordinator merges
+ * those files into test-output/ExtentReport.html at the end.
+ *
+ * Protocol (one tab separated line per message, methods comma separated):
+ * worker: HELLO id, coordinator: RUN class methods or DONE, worker: RESULT class methods status ms json-file
+ */
+public class TestCoordinator {
+
+    private static final String FRAGMENT_DIR = "test-output/fragments";
+
+    private final LinkedBlockingDeque<WorkItem> queue = new LinkedBlockingDeque<>();
+    private final Map<String, String> results = new ConcurrentHashMap<>();
+    private final Set<String> fragments = ConcurrentHashMap.newKeySet();
+    private final List<Process> processes = new CopyOnWriteArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger connectedWorkers = new AtomicInteger();
+    private final AtomicInteger restartsLeft;
+    private final int workerCount;
+    private final int maxAttempts;
+    private final boolean spawnWorkers;
+    private final boolean byClass;
+    private int totalItems;
+    private ServerSocket server;
+
+    /**
+     * Create a coordinator configured by the executor.* settings
+     */
+    public TestCoordinator() {
+        this.workerCount = Math.max(1, AutomationConfig.getInt("executor.workers", 2));
+        this.maxAttempts = Math.max(1, AutomationConfig.getInt("executor.max.attempts", 2));
+        this.spawnWorkers = AutomationConfig.getBoolean("executor.spawn.workers", true);
+        this.byClass = AutomationConfig.getString("executor.unit", "method").equalsIgnoreCase("class");
+        this.restartsLeft = new AtomicInteger(spawnWorkers ? AutomationConfig.getInt("executor.worker.restarts", workerCount) : 0);
+    }
+
+    /**
+     * Run the suite on the workers
+     * @param suite The suite to distribute
+     * @return 0 if every test passed, 1 otherwise
+     */
+    public int run(XmlSuite suite) throws IOException {
+        long start = System.currentTimeMillis();
+        for (WorkItem item : toWorkItems(suite)) {
+            queue.add(item);
+        }
+        totalItems = queue.size();
+        if (totalItems == 0) {
+            System.err.println("No tests to distribute");
+            return 0;
+        }
+        cleanFragments();
+
+        // Workers don't rotate the screenshots (they run next to each other), so the coordinator does it once per run
+        ScreenshotRetention retention = ScreenshotRetention.fromConfig();
+        retention.rotate();
+
+        server = new ServerSocket(AutomationConfig.getInt("executor.port", 0), workerCount, InetAddress.getLoopbackAddress());
+        System.out.println("Coordinator listening on 127.0.0.1:" + server.getLocalPort()
+                + " with " + totalItems + " tests for " + workerCount + " workers");
+        Thread acceptor = new Thread(this::acceptWorkers, "coordinator-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        if (spawnWorkers) {
+            for (int i = 1; i <= workerCount; i++) {
+                startWorker(i);
+            }
+        }
+
+        // Wait until every test has a result or no worker is left to run the rest
+        long idleTimeout = AutomationConfig.getLong("executor.idle.timeout.ms", 60000);
+        long idleSince = System.currentTimeMillis();
+        while (results.size() < totalItems) {
+            if (connectedWorkers.get() > 0 || hasLiveProcess()) {
+                idleSince = System.currentTimeMillis();
+            } else if (!restartWorker() && System.currentTimeMillis() - idleSince > (spawnWorkers ? 0 : idleTimeout)) {
+                break;
+            }
+            sleep(200);
+        }
+        server.close();
+        for (WorkItem item : queue) {
+            results.put(item.key(), "NOT_RUN");
+        }
+        stopWorkers();
+
+        mergeReports();
+        retention.await(AutomationConfig.getLong("screenshot.retention.wait.ms", 10000));
+        System.out.println(retention.getSummary());
+        int failed = 0;
+        for (Map.Entry<String, String> entry : results.entrySet()) {
+            if (!entry.getValue().equals("PASS")) {
+                failed++;
+                System.err.println(entry.getValue() + ": " + entry.getKey());
+            }
+        }
+        System.out.println(String.format("Coordinator finished %d tests (%d not passed) in %d ms",
+                results.size(), failed, System.currentTimeMillis() - start));
+        return failed == 0 ? 0 : 1;
+    }
+
+    /**
+     * Flatten the suite into work items in suite order (already longest-first when there is history)
+     */
+    private List<WorkItem> toWorkItems(XmlSuite suite) {
+        List<WorkItem> items = new ArrayList<>();
+        TestIndex index = null;
+        for (XmlTest test : suite.getTests()) {
+            for (XmlClass xmlClass : test.getXmlClasses()) {
+                List<String> methods = new ArrayList<>();
+                for (XmlInclude include : xmlClass.getIncludedMethods()) {
+                    methods.add(include.getName());
+                }
+                if (methods.isEmpty()) {
+                    // Whole class selected: look its test methods up in the index
+                    if (index == null) {
+                        index = TestIndex.load(TestNGXmlGenerator.PACKAGE_TO_SCAN);
+                    }
+                    List<String> indexed = index.getTestMethodsByClass().get(xmlClass.getName());
+                    if (indexed != null) {
+                        methods.addAll(indexed);
+                    }
+                }
+                if (byClass) {
+                    items.add(new WorkItem(xmlClass.getName(), methods));
+                } else {
+                    for (String method : methods) {
+                        List<String> single = new ArrayList<>();
+                        single.add(method);
+                        items.add(new WorkItem(xmlClass.getName(), single));
+                    }
+                }
+            }
+        }
+        return items;
+    }
+
+    private void acceptWorkers() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread handler = new Thread(() -> serveWorker(socket), "coordinator-worker");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    System.err.println("Error accepting worker: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Hand out tests to one worker until the queue is empty
+     */
+    private void serveWorker(Socket socket) {
+        connectedWorkers.incrementAndGet();
+        String workerId = "?";
+        WorkItem current = null;
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            String hello = in.readLine();
+            if (hello == null || !hello.startsWith("HELLO\t")) {
+                return;
+            }
+            workerId = hello.substring("HELLO\t".length());
+            System.out.println("Worker " + workerId + " connected");
+            while (true) {
+                current = nextItem();
+                if (current == null) {
+                    out.println("DONE");
+                    return;
+                }
+                current.attempts++;
+                out.println("RUN\t" + current.className + "\t" + String.join(",", current.methods));
+                String line = in.readLine();
+                if (line == null) {
+                    throw new SocketException("connection closed");
+                }
+                String[] fields = line.split("\t", -1);
+                if (fields.length >= 6 && fields[0].equals("RESULT")) {
+                    if (!fields[5].isEmpty()) {
+                        fragments.add(fields[5]);
+                    }
+                    results.put(current.key(), fields[3]);
+                    System.out.println("Worker " + workerId + ": " + fields[3] + " " + current.key() + " (" + fields[4] + " ms)");
+                } else {
+                    System.err.println("Unexpected reply from worker " + workerId + ": " + line);
+                    results.put(current.key(), "ERROR");
+                }
+                inFlight.decrementAndGet();
+                current = null;
+            }
+        } catch (IOException e) {
+            System.err.println("Worker " + workerId + " lost: " + e.getMessage());
+        } finally {
+            if (current != null) {
+                requeue(current, workerId);
+            }
+            connectedWorkers.decrementAndGet();
+        }
+    }
+
+    private WorkItem nextItem() {
+        while (true) {
+            WorkItem item;
+            synchronized (queue) {
+                item = queue.pollFirst();
+                if (item != null) {
+                    inFlight.incrementAndGet();
+                    return item;
+                }
+                if (inFlight.get() == 0) {
+                    return null;
+                }
+            }
+            // Another worker is still busy and may crash, keep this one around to take its test
+            sleep(200);
+        }
+    }
+
+    private void requeue(WorkItem item, String workerId) {
+        synchronized (queue) {
+            if (item.attempts < maxAttempts) {
+                System.err.println("Requeueing " + item.key() + " after worker " + workerId + " was lost");
+                queue.addFirst(item);
+            } else {
+                results.put(item.key(), "CRASHED");
+            }
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void startWorker(int id) throws IOException {
+        List<String> command = javaCommand();
+        command.add("-Dexecutor.mode=worker");
+        command.add("-Dexecutor.port=" + server.getLocalPort());
+        command.add("-Dexecutor.worker.id=" + id);
+        command.add("-Dextent.json.file=" + FRAGMENT_DIR + "/worker-" + id + ".json");
+        command.add(TestNGExecutor.class.getName());
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        processes.add(process);
+    }
+
+    /**
+     * Build the start of a command line for a child JVM with the same class path and settings
+     */
+    private static List<String> javaCommand() {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        if (!System.getProperty("java.specification.version").startsWith("1.")) {
+            // Extent's JSON archive (de)serializes Throwable fields through reflection
+            command.add("--add-opens");
+            command.add("java.base/java.lang=ALL-UNNAMED");
+        }
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            // Pass settings given to the coordinator on to the child JVM
+            if (argument.startsWith("-D") && !argument.startsWith("-Dexecutor.") && !argument.startsWith("-Dextent.json.file")) {
+                command.add(argument);
+            }
+        }
+        command.add("-cp");
+        command.add(getClassPath());
+        return command;
+    }
+
+    /**
+     * Start a replacement for a crashed worker while restarts are left
+     */
+    private boolean restartWorker() {
+        if (!spawnWorkers || queue.isEmpty() || restartsLeft.getAndDecrement() <= 0) {
+            return false;
+        }
+        try {
+            startWorker(workerCount + processes.size());
+            // Give the new JVM time to connect before checking again
+            sleep(5000);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Failed to restart worker: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean hasLiveProcess() {
+        for (Process process : processes) {
+            if (process.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void stopWorkers() {
+        // Workers stop their browsers and write their screenshots, trace and metrics on the way out
+        long timeout = AutomationConfig.getLong("executor.worker.exit.timeout.ms", 120000);
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(timeout, TimeUnit.MILLISECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * Merge the JSON reports of the workers in a child JVM (see javaCommand)
+     */
+    private void mergeReports() {
+        List<String> command = javaCommand();
+        command.add("-Dexecutor.mode=merge");
+        command.add("-Dexecutor.merge.files=" + String.join(File.pathSeparator, fragments));
+        command.add("-Dexecutor.workers=" + workerCount);
+        command.add(TestNGExecutor.class.getName());
+        try {
+            Process process = new ProcessBuilder(command).inheritIO().start();
+            if (process.waitFor() != 0) {
+                System.err.println("Merging the worker reports failed");
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to start report merge: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Merge JSON Extent reports into test-output/ExtentReport.html
+     * @param jsonFiles The JSON files written by the workers
+     */
+    public static void mergeReports(List<String> jsonFiles) {
+        ExtentSparkReporter sparkReporter = new ExtentSparkReporter("test-output/ExtentReport.html");
+        sparkReporter.config().setDocumentTitle("WAMP Automation Test Report");
+        sparkReporter.config().setReportName("SikuliX & Selenium Test Report");
+        sparkReporter.config().setTheme(Theme.STANDARD);
+        ExtentReports merged = new ExtentReports();
+        merged.attachReporter(sparkReporter);
+        merged.setSystemInfo("OS", System.getProperty("os.name"));
+        merged.setSystemInfo("Java Version", System.getProperty("java.version"));
+        merged.setSystemInfo("User", System.getProperty("user.name"));
+        merged.setSystemInfo("Workers", AutomationConfig.getString("executor.workers", "2"));
+        int count = 0;
+        for (String fragment : jsonFiles) {
+            File file = new File(fragment);
+            if (fragment.isEmpty() || !file.exists()) {
+                continue;
+            }
+            try {
+                merged.createDomainFromJsonArchive(file);
+                count++;
+            } catch (IOException e) {
+                System.err.println("Failed to merge report fragment " + fragment + ": " + e.getMessage());
+            }
+        }
+        
+        // Add up the latency histograms of the workers
+        LatencyMetrics metrics = LatencyMetrics.getInstance();
+        int series = 0;
+        for (File file : LatencyMetrics.findWorkerFiles()) {
+            series += metrics.readPrometheus(file);
+        }
+        if (series > 0) {
+            metrics.writePrometheus(LatencyMetrics.getFile());
+            System.out.println(metrics.getSummary());
+            merged.createTest("Latency Summary", "Operation latencies of all workers").info(metrics.getHtmlSummary());
+        }
+        merged.flush();
+        System.out.println("Merged " + count + " report fragments into test-output/ExtentReport.html");
+    }
+
+    private static void cleanFragments() {
+        // Worker metrics of an earlier run would be added to this run's totals
+        for (File file : LatencyMetrics.findWorkerFiles()) {
+            file.delete();
+        }
+        File dir = new File(FRAGMENT_DIR);
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(".json")) {
+                    file.delete();
+                }
+            }
+        }
+        dir.mkdirs();
+    }
+
+    /**
+     * Class path for the worker JVMs (also works under mvn exec:java, which loads the test classes
+     * in its own class loader)
+     */
+    private static String getClassPath() {
+        Set<String> entries = new LinkedHashSet<>();
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        while (loader != null) {
+            if (loader instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) loader).getURLs()) {
+                    if ("file".equals(url.getProtocol())) {
+                        entries.add(new File(url.getPath()).getAbsolutePath());
+                    }
+                }
+            }
+            loader = loader.getParent();
+        }
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            entries.add(entry);
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class WorkItem {
+        private final String className;
+        private final List<String> methods;
+        private int attempts;
+
+        WorkItem(String className, List<String> methods) {
+            this.className = className;
+            this.methods = methods;
+        }
+
+        String key() {
+            return methods.size() == 1 ? className + "." + methods.get(0) : className;
+        }
+    }
+}
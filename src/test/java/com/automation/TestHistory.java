@@ -0,0 +1,201 @@
+package com.automation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local history of test method durations and outcomes
+ * Every run appends one tab separated line per executed test method (time, class.method,
+ * duration in ms, PASS/FAIL/SKIP) to history.file. The estimate of a method is the mean duration
+ * of its last history.window passed or failed runs. The file is compacted to that window once it
+ * grows beyond history.max.lines.
+ */
+public final class TestHistory {
+
+    private static final List<String> PENDING = new ArrayList<>();
+
+    private final Map<String, Deque<Long>> durations = new HashMap<>();
+    private final int window;
+
+    private TestHistory(int window) {
+        this.window = window;
+    }
+
+    /**
+     * Load the duration history
+     * @return The history, empty when no run has been recorded yet
+     */
+    public static TestHistory load() {
+        return load(getFile());
+    }
+
+    /**
+     * Load durations from a file in the history format
+     * @param file The file, for example a copy of the history checked in for sharding
+     * @return The history, empty when the file does not exist
+     */
+    public static TestHistory load(File file) {
+        TestHistory history = new TestHistory(Math.max(1, AutomationConfig.getInt("history.window", 5)));
+        if (file.exists()) {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split("\t");
+                    if (fields.length < 4 || fields[3].equals("SKIP")) {
+                        continue;
+                    }
+                    try {
+                        history.add(fields[1], Long.parseLong(fields[2]));
+                    } catch (NumberFormatException e) {
+                        // Ignore a damaged line
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading test history " + file.getPath() + ": " + e.getMessage());
+            }
+        }
+        return history;
+    }
+
+    /**
+     * @return true if no duration has been recorded yet
+     */
+    public boolean isEmpty() {
+        return durations.isEmpty();
+    }
+
+    /**
+     * Get the expected duration of a test method
+     * @param qualifiedName class.method
+     * @return Mean duration of the recent runs in ms, or -1 when the method has no history
+     */
+    public long getEstimateMillis(String qualifiedName) {
+        Deque<Long> recent = durations.get(qualifiedName);
+        if (recent == null || recent.isEmpty()) {
+            return -1;
+        }
+        long total = 0;
+        for (long duration : recent) {
+            total += duration;
+        }
+        return total / recent.size();
+    }
+
+    /**
+     * @return Mean of the estimates of all known methods, used for methods without history
+     */
+    public long getAverageEstimateMillis() {
+        if (durations.isEmpty()) {
+            return 0;
+        }
+        long total = 0;
+        for (String name : durations.keySet()) {
+            total += getEstimateMillis(name);
+        }
+        return total / durations.size();
+    }
+
+    /**
+     * Queue the result of one test method, written by flush
+     * @param qualifiedName class.method
+     * @param durationMillis Run time of the method
+     * @param status PASS, FAIL or SKIP
+     */
+    public static void record(String qualifiedName, long durationMillis, String status) {
+        synchronized (PENDING) {
+            PENDING.add(System.currentTimeMillis() + "\t" + qualifiedName + "\t" + durationMillis + "\t" + status);
+        }
+    }
+
+    /**
+     * Append the queued results to the history file, compacting it when it became too long
+     */
+    public static void flush() {
+        List<String> lines;
+        synchronized (PENDING) {
+            if (PENDING.isEmpty()) {
+                return;
+            }
+            lines = new ArrayList<>(PENDING);
+            PENDING.clear();
+        }
+        File file = getFile();
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        synchronized (TestHistory.class) {
+            try {
+                Files.write(file.toPath(), lines, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                System.err.println("Failed to write test history " + file.getPath() + ": " + e.getMessage());
+                return;
+            }
+            compactIfNeeded(file);
+        }
+    }
+
+    /**
+     * Rewrite the history keeping only the last history.window lines of each method
+     */
+    private static void compactIfNeeded(File file) {
+        int maxLines = AutomationConfig.getInt("history.max.lines", 10000);
+        int window = Math.max(1, AutomationConfig.getInt("history.window", 5));
+        try {
+            List<String> all = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            if (all.size() <= maxLines) {
+                return;
+            }
+            Map<String, Integer> kept = new HashMap<>();
+            Deque<String> compacted = new ArrayDeque<>();
+            for (int i = all.size() - 1; i >= 0; i--) {
+                String[] fields = all.get(i).split("\t");
+                if (fields.length < 4) {
+                    continue;
+                }
+                int count = kept.getOrDefault(fields[1], 0);
+                if (count < window) {
+                    kept.put(fields[1], count + 1);
+                    compacted.addFirst(all.get(i));
+                }
+            }
+            Path temp = new File(file.getPath() + ".tmp").toPath();
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (String line : compacted) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("Compacted test history from " + all.size() + " to " + compacted.size() + " lines");
+        } catch (IOException e) {
+            System.err.println("Failed to compact test history " + file.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    private void add(String qualifiedName, long durationMillis) {
+        Deque<Long> recent = durations.computeIfAbsent(qualifiedName, k -> new ArrayDeque<>());
+        recent.addLast(durationMillis);
+        if (recent.size() > window) {
+            recent.removeFirst();
+        }
+    }
+
+    private static File getFile() {
+        return new File(AutomationConfig.getString("history.file", "test-output/test-history.tsv"));
+    }
+}
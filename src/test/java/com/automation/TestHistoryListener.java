@@ -0,0 +1,37 @@
+package com.automation;
+
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+/**
+ * TestNG listener that records the duration and outcome of every test method in TestHistory
+ */
+public class TestHistoryListener implements ITestListener, ISuiteListener {
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        record(result, "PASS");
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        record(result, "FAIL");
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        record(result, "SKIP");
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        TestHistory.flush();
+    }
+
+    private static void record(ITestResult result, String status) {
+        String name = result.getMethod().getRealClass().getName() + "." + result.getMethod().getMethodName();
+        TestHistory.record(name, Math.max(0, result.getEndMillis() - result.getStartMillis()), status);
+    }
+}
@@ -0,0 +1,366 @@
+package com.automation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.testng.annotations.Test;
+
+/**
+ * Persisted index of the test classes, their @Test methods, priorities and groups
+ * The index is stored next to the compiled classes and refreshed incrementally: a class file is
+ * only loaded and reflected over again when its size or timestamp changed and its content hash
+ * differs from the indexed one. Loading an up to date index only reads one small file and stats
+ * the class files.
+ */
+public final class TestIndex {
+
+    private static final String HEADER = "# test index v1";
+
+    private final String packageName;
+    private final File indexFile;
+    private final Map<String, IndexedClass> classes = new TreeMap<>();
+    private int reindexedCount;
+    private int reusedCount;
+
+    private TestIndex(String packageName, File indexFile) {
+        this.packageName = packageName;
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Load the index of a package, refreshing the entries of changed class files
+     * The index file is test.index.file (default: target/test-index.tsv).
+     * @param packageName The package to index, including sub packages
+     * @return The up to date index
+     */
+    public static TestIndex load(String packageName) {
+        long start = System.nanoTime();
+        TestIndex index = new TestIndex(packageName,
+                new File(AutomationConfig.getString("test.index.file", "target/test-index.tsv")));
+        Map<String, IndexedClass> stored = index.read();
+        boolean changed = index.refresh(stored);
+        if (changed) {
+            index.write();
+        }
+        System.out.println(String.format("Test index loaded in %d ms (%d classes, %d reindexed, %d unchanged)",
+                (System.nanoTime() - start) / 1_000_000, index.classes.size(), index.reindexedCount, index.reusedCount));
+        return index;
+    }
+
+    /**
+     * @return Test method names per class name, for classes with at least one @Test method
+     */
+    public Map<String, List<String>> getTestMethodsByClass() {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (IndexedClass indexed : classes.values()) {
+            if (!indexed.methods.isEmpty()) {
+                List<String> names = new ArrayList<>();
+                for (TestMethod method : indexed.methods) {
+                    names.add(method.getMethodName());
+                }
+                result.put(indexed.className, names);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Every indexed test method
+     */
+    public List<TestMethod> getTestMethods() {
+        List<TestMethod> result = new ArrayList<>();
+        for (IndexedClass indexed : classes.values()) {
+            result.addAll(indexed.methods);
+        }
+        return result;
+    }
+
+    /**
+     * Look up one test method
+     * @param className Fully qualified class name
+     * @param methodName Method name
+     * @return The indexed method, or null if it is not a known test
+     */
+    public TestMethod find(String className, String methodName) {
+        IndexedClass indexed = classes.get(className);
+        if (indexed != null) {
+            for (TestMethod method : indexed.methods) {
+                if (method.getMethodName().equals(methodName)) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Bring the index in line with the class files currently on disk
+     * @return true if anything was added, changed or removed
+     */
+    private boolean refresh(Map<String, IndexedClass> stored) {
+        boolean changed = false;
+        for (Path root : findClassRoots()) {
+            Path packageDir = root.resolve(packageName.replace('.', File.separatorChar));
+            List<Path> classFiles;
+            try (Stream<Path> files = Files.walk(packageDir)) {
+                classFiles = files.filter(path -> path.toString().endsWith(".class"))
+                        .filter(path -> !path.getFileName().toString().contains("$"))
+                        .collect(Collectors.toList());
+            } catch (IOException e) {
+                System.err.println("Error listing classes in " + packageDir + ": " + e.getMessage());
+                continue;
+            }
+            for (Path classFile : classFiles) {
+                String relative = root.relativize(classFile).toString();
+                String className = relative.substring(0, relative.length() - ".class".length())
+                        .replace(File.separatorChar, '.');
+                if (classes.containsKey(className)) {
+                    // Same class in an earlier classpath root wins, as it does for the class loader
+                    continue;
+                }
+                IndexedClass previous = stored.get(className);
+                IndexedClass current = indexClass(className, classFile, previous);
+                if (current == null) {
+                    // Could not be loaded: left out of the index, so the next run tries again
+                    changed = true;
+                    continue;
+                }
+                classes.put(className, current);
+                if (current != previous) {
+                    changed = true;
+                }
+            }
+        }
+        if (!classes.keySet().equals(stored.keySet())) {
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * Reuse the stored entry of a class file when it is unchanged, otherwise reflect over the class
+     * @return The entry, or null if the class could not be loaded
+     */
+    private IndexedClass indexClass(String className, Path classFile, IndexedClass previous) {
+        try {
+            long size = Files.size(classFile);
+            long modified = Files.getLastModifiedTime(classFile).toMillis();
+            if (previous != null && previous.size == size && previous.modified == modified) {
+                reusedCount++;
+                return previous;
+            }
+            long hash = hash(classFile);
+            if (previous != null && previous.hash == hash) {
+                // Rebuilt but identical bytecode: only the timestamp moved
+                reusedCount++;
+                return new IndexedClass(className, size, modified, hash, previous.methods);
+            }
+            reindexedCount++;
+            List<TestMethod> methods = reflectTestMethods(className);
+            return methods == null ? null : new IndexedClass(className, size, modified, hash, methods);
+        } catch (IOException e) {
+            System.err.println("Error reading class file " + classFile + ": " + e.getMessage());
+            reindexedCount++;
+            List<TestMethod> methods = reflectTestMethods(className);
+            return methods == null ? null : new IndexedClass(className, 0, 0, 0, methods);
+        }
+    }
+
+    /**
+     * @return The @Test methods of the class, or null if it could not be loaded (e.g. a missing dependency)
+     */
+    private static List<TestMethod> reflectTestMethods(String className) {
+        List<TestMethod> methods = new ArrayList<>();
+        try {
+            Class<?> clazz = Class.forName(className, false, Thread.currentThread().getContextClassLoader());
+            Test classAnnotation = clazz.getAnnotation(Test.class);
+            Method[] declared = clazz.getDeclaredMethods();
+            Arrays.sort(declared, (a, b) -> a.getName().compareTo(b.getName()));
+            for (Method method : declared) {
+                Test annotation = method.getAnnotation(Test.class);
+                if (annotation == null) {
+                    continue;
+                }
+                Set<String> groups = new LinkedHashSet<>();
+                if (classAnnotation != null) {
+                    groups.addAll(Arrays.asList(classAnnotation.groups()));
+                }
+                groups.addAll(Arrays.asList(annotation.groups()));
+                methods.add(new TestMethod(className, method.getName(), annotation.priority(), new ArrayList<>(groups)));
+            }
+        } catch (Throwable e) {
+            System.err.println("Error indexing " + className + ": " + e.getMessage());
+            return null;
+        }
+        return methods;
+    }
+
+    private static long hash(Path classFile) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(Files.readAllBytes(classFile));
+        return crc.getValue();
+    }
+
+    /**
+     * Find the classpath directories that contain the package
+     * Classes inside jars are not indexed.
+     */
+    private List<Path> findClassRoots() {
+        List<Path> roots = new ArrayList<>();
+        String packagePath = packageName.replace('.', '/');
+        try {
+            Enumeration<URL> urls = Thread.currentThread().getContextClassLoader().getResources(packagePath);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                if (!"file".equals(url.getProtocol())) {
+                    continue;
+                }
+                Path packageDir = Paths.get(URLDecoder.decode(url.getPath(), "UTF-8"));
+                Path root = packageDir;
+                for (int i = 0; i < packageName.split("\\.").length && root != null; i++) {
+                    root = root.getParent();
+                }
+                if (root != null) {
+                    roots.add(root);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error locating classes of " + packageName + ": " + e.getMessage());
+        }
+        return roots;
+    }
+
+    /**
+     * Read the stored index
+     * Line format: C, class, size, modified, hash for a class followed by M, method, priority,
+     * groups lines for its test methods (tab separated).
+     */
+    private Map<String, IndexedClass> read() {
+        Map<String, IndexedClass> stored = new TreeMap<>();
+        if (!indexFile.exists()) {
+            return stored;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (!HEADER.equals(line)) {
+                return stored;
+            }
+            IndexedClass current = null;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields[0].equals("C") && fields.length == 5) {
+                    current = new IndexedClass(fields[1], Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                            Long.parseLong(fields[4]), new ArrayList<>());
+                    stored.put(current.className, current);
+                } else if (fields[0].equals("M") && fields.length == 4 && current != null) {
+                    List<String> groups = fields[3].isEmpty()
+                            ? new ArrayList<>() : new ArrayList<>(Arrays.asList(fields[3].split(",")));
+                    current.methods.add(new TestMethod(current.className, fields[1], Integer.parseInt(fields[2]), groups));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable test index " + indexFile.getPath() + ": " + e.getMessage());
+            stored.clear();
+        }
+        return stored;
+    }
+
+    private void write() {
+        File parent = indexFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(indexFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (IndexedClass indexed : classes.values()) {
+                writer.write("C\t" + indexed.className + "\t" + indexed.size + "\t" + indexed.modified + "\t" + indexed.hash);
+                writer.newLine();
+                for (TestMethod method : indexed.methods) {
+                    writer.write("M\t" + method.getMethodName() + "\t" + method.getPriority() + "\t"
+                            + String.join(",", method.getGroups()));
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write test index " + indexFile.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * An indexed @Test method
+     */
+    public static final class TestMethod {
+        private final String className;
+        private final String methodName;
+        private final int priority;
+        private final List<String> groups;
+
+        TestMethod(String className, String methodName, int priority, List<String> groups) {
+            this.className = className;
+            this.methodName = methodName;
+            this.priority = priority;
+            this.groups = Collections.unmodifiableList(groups);
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        /**
+         * @return Fully qualified name as used in TestcaseToRun.config (class.method)
+         */
+        public String getQualifiedName() {
+            return className + "." + methodName;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public List<String> getGroups() {
+            return groups;
+        }
+    }
+
+    private static final class IndexedClass {
+        private final String className;
+        private final long size;
+        private final long modified;
+        private final long hash;
+        private final List<TestMethod> methods;
+
+        IndexedClass(String className, long size, long modified, long hash, List<TestMethod> methods) {
+            this.className = className;
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+            this.methods = methods;
+        }
+    }
+}
@@ -1,25 +1,51 @@
 package com.automation;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
 import org.testng.TestNG;
 
 /**
  * TestNG executor to run tests programmatically
+ * executor.mode=local (default) runs the suite in this JVM, coordinator distributes it over local
+ * worker JVMs (see TestCoordinator). worker and merge are the modes of the JVMs the coordinator
+ * starts to run tests and to merge their reports.
  */
 public class TestNGExecutor {
     
     /**
-     * Main method to execute TestNG with dynamically generated XML
+     * @return true if this JVM runs tests for a TestCoordinator
+     */
+    public static boolean isWorker() {
+        return AutomationConfig.getString("executor.mode", "local").equalsIgnoreCase("worker");
+    }
+    
+    /**
+     * Main method to execute TestNG with the dynamically built suite
      */
     public static void main(String[] args) {
         try {
-            // First generate the XML
-            TestNGXmlGenerator.generateTestNGXml();
+            String mode = AutomationConfig.getString("executor.mode", "local").toLowerCase();
+            if (mode.equals("worker")) {
+                new TestWorker().run();
+                System.exit(0);
+            }
+            if (mode.equals("merge")) {
+                TestCoordinator.mergeReports(Arrays.asList(AutomationConfig.getString("executor.merge.files", "").split(File.pathSeparator)));
+                System.exit(0);
+            }
+            if (mode.equals("coordinator")) {
+                System.exit(new TestCoordinator().run(TestNGXmlGenerator.buildSuite()));
+            }
             
             // Create TestNG instance
             TestNG testng = new TestNG();
             
-            // Set the XML file
-            testng.setTestSuites(java.util.Collections.singletonList("dynamic-testng.xml"));
+            // Run the suite built from the config file (no XML file round-trip)
+            testng.setXmlSuites(Collections.singletonList(TestNGXmlGenerator.buildSuite()));
+            
+            // Record test durations for the longest-first ordering of the next run
+            testng.addListener(new TestHistoryListener());
             
             // Run tests
             testng.run();
@@ -11,31 +11,22 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.lang.reflect.Method;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.stream.Collectors;
 
-import org.reflections.Reflections;
-import org.reflections.scanners.SubTypesScanner;
-import org.reflections.scanners.TypeAnnotationsScanner;
-import org.reflections.util.ClasspathHelper;
-import org.reflections.util.ConfigurationBuilder;
-import org.testng.annotations.Test;
-
 /**
  * Utility class to dynamically generate TestNG XML configuration based on TestcaseToRun.config
  */
 public class TestNGXmlGenerator {
     
     private static final String CONFIG_FILE = "TestcaseToRun.config";
-    private static final String PACKAGE_TO_SCAN = "com.automation";
+    static final String PACKAGE_TO_SCAN = "com.automation";
     private static final String OUTPUT_XML = "dynamic-testng.xml";
     
     /**
@@ -49,13 +40,30 @@ public class TestNGXmlGenerator {
         } catch (Exception e) {
             System.err.println("Error generating TestNG XML: " + e.getMessage());
             e.printStackTrace();
+            if (AutomationConfig.getBoolean("shard.verify", false)) {
+                // Fail the build when the shard verification was requested
+                System.exit(1);
+            }
         }
     }
     
     /**
      * Generate TestNG XML based on the config file content
+     * Writes the suite built by buildSuite to dynamic-testng.xml
      */
     public static void generateTestNGXml() throws IOException {
+        XmlSuite suite = buildSuite();
+        // buildSuite already wrote it when suite.xml.debug is set
+        if (!AutomationConfig.getBoolean("suite.xml.debug", false)) {
+            writeSuiteXml(suite);
+        }
+    }
+    
+    /**
+     * Build the TestNG suite described by the config file content in memory
+     * @return The suite to run
+     */
+    public static XmlSuite buildSuite() throws IOException {
         // Read config file
         List<String> configLines = Files.readAllLines(Paths.get(CONFIG_FILE));
         
@@ -63,30 +71,45 @@ public class TestNGXmlGenerator {
         XmlSuite suite = new XmlSuite();
         suite.setName("WAMP Automation Suite");
         
+        // Apply parallel execution settings (parallel=methods|classes|tests|instances, thread-count=N)
+        String parallel = AutomationConfig.getString("parallel", null);
+        if (parallel != null) {
+            XmlSuite.ParallelMode parallelMode = XmlSuite.ParallelMode.getValidParallel(parallel);
+            suite.setParallel(parallelMode);
+            System.out.println("Parallel mode: " + parallelMode);
+        }
+        int threadCount = AutomationConfig.getInt("thread-count", 0);
+        if (threadCount > 0) {
+            suite.setThreadCount(threadCount);
+        }
+        
         // Create test
         XmlTest test = new XmlTest(suite);
         test.setName("Desktop Automation Tests");
         
         // Process config file content
-        if (configLines.isEmpty()) {
-            System.err.println("Config file is empty. Using default behavior (run all tests).");
+        boolean hasTestEntries = configLines.stream()
+                .map(String::trim)
+                .anyMatch(line -> !line.isEmpty() && !AutomationConfig.isSettingLine(line));
+        if (!hasTestEntries) {
+            System.err.println("No test methods listed in config file. Using default behavior (run all tests).");
             configLines.add("ALL");
         }
         
         // Check if we should run all tests
         boolean runAllTests = configLines.stream()
                 .map(String::trim)
-                .filter(line -> !line.isEmpty())
+                .filter(line -> !line.isEmpty() && !AutomationConfig.isSettingLine(line))
                 .anyMatch(line -> line.equalsIgnoreCase("ALL"));
         
         // Get specific test methods if not running all
         List<String> specificMethods = configLines.stream()
                 .map(String::trim)
-                .filter(line -> !line.isEmpty() && !line.equalsIgnoreCase("ALL"))
+                .filter(line -> !line.isEmpty() && !line.equalsIgnoreCase("ALL") && !AutomationConfig.isSettingLine(line))
                 .collect(Collectors.toList());
         
         // Get all test classes in the package
-        Map<String, List<String>> classToMethodsMap = new HashMap<>();
+        Map<String, List<String>> classToMethodsMap = new LinkedHashMap<>();
         
         if (runAllTests) {
             // Find all classes with @Test methods
@@ -111,29 +134,70 @@ public class TestNGXmlGenerator {
             }
         }
         
-        // Create XML classes
-        List<XmlClass> xmlClasses = new ArrayList<>();
+        // Keep only this JVM's part of the tests (shard.index / shard.count)
+        TestSharder sharder = TestSharder.fromConfig();
+        if (AutomationConfig.getBoolean("shard.verify", false) && !sharder.verify(classToMethodsMap)) {
+            throw new IllegalStateException("Shards do not cover every test method exactly once");
+        }
+        classToMethodsMap = sharder.select(classToMethodsMap);
+        
+        // Order classes and methods longest-first from the duration history
+        TestScheduler scheduler = TestScheduler.fromConfig(PACKAGE_TO_SCAN);
+        List<TestScheduler.ScheduledClass> scheduledClasses = scheduler.order(classToMethodsMap);
+        
+        // Pack classes into one balanced group per thread (schedule=balanced)
+        List<List<TestScheduler.ScheduledClass>> groups;
+        if (scheduler.isBalanced() && threadCount > 1 && scheduledClasses.size() > 1) {
+            groups = scheduler.balance(scheduledClasses, threadCount);
+            suite.setParallel(XmlSuite.ParallelMode.TESTS);
+            suite.setThreadCount(groups.size());
+        } else {
+            groups = new ArrayList<>();
+            groups.add(scheduledClasses);
+        }
         
-        for (Map.Entry<String, List<String>> entry : classToMethodsMap.entrySet()) {
-            String className = entry.getKey();
-            List<String> methods = entry.getValue();
+        for (int i = 0; i < groups.size(); i++) {
+            XmlTest groupTest = test;
+            if (i > 0) {
+                groupTest = new XmlTest(suite);
+                groupTest.setName(test.getName() + " " + (i + 1));
+            }
             
-            XmlClass xmlClass = new XmlClass(className);
+            // Create XML classes
+            List<XmlClass> xmlClasses = new ArrayList<>();
             
-            // If not running all tests, include specific methods
-            if (!runAllTests && !methods.isEmpty()) {
-                List<XmlInclude> includes = methods.stream()
-                        .map(XmlInclude::new)
-                        .collect(Collectors.toList());
-                xmlClass.setIncludedMethods(includes);
+            for (TestScheduler.ScheduledClass scheduled : groups.get(i)) {
+                List<String> methods = scheduled.getMethodNames();
+                
+                XmlClass xmlClass = new XmlClass(scheduled.getClassName());
+                
+                // Include specific methods when not running all tests, to fix their order or to split a class over shards
+                if ((!runAllTests || scheduler.hasHistory() || sharder.isEnabled()) && !methods.isEmpty()) {
+                    List<XmlInclude> includes = methods.stream()
+                            .map(XmlInclude::new)
+                            .collect(Collectors.toList());
+                    xmlClass.setIncludedMethods(includes);
+                }
+                
+                xmlClasses.add(xmlClass);
             }
             
-            xmlClasses.add(xmlClass);
+            groupTest.setXmlClasses(xmlClasses);
         }
         
-        test.setXmlClasses(xmlClasses);
+        // Keep a copy on disk for debugging when requested (suite.xml.debug=true)
+        if (AutomationConfig.getBoolean("suite.xml.debug", false)) {
+            writeSuiteXml(suite);
+        }
         
-        // Write to file
+        return suite;
+    }
+    
+    /**
+     * Write a suite to dynamic-testng.xml
+     * @param suite The suite to write
+     */
+    private static void writeSuiteXml(XmlSuite suite) throws IOException {
         try (FileWriter writer = new FileWriter(OUTPUT_XML)) {
             writer.write(suite.toXml());
         }
@@ -141,54 +205,10 @@ public class TestNGXmlGenerator {
     
     /**
      * Find all classes with @Test methods in the package
+     * Uses the persisted test index, which only reflects over class files that changed since the
+     * last run.
      */
     private static Map<String, List<String>> findAllTestClasses() {
-        Map<String, List<String>> result = new HashMap<>();
-        
-        try {
-            // Configure Reflections to scan the package
-            Reflections reflections = new Reflections(new ConfigurationBuilder()
-                    .setUrls(ClasspathHelper.forPackage(PACKAGE_TO_SCAN))
-                    .setScanners(new SubTypesScanner(false), new TypeAnnotationsScanner()));
-            
-            // Find all classes with @Test methods
-            Set<Class<?>> testClasses = reflections.getTypesAnnotatedWith(Test.class);
-            
-            // Also find classes that have methods annotated with @Test
-            Set<Class<?>> classesWithTestMethods = reflections.getSubTypesOf(Object.class)
-                    .stream()
-                    .filter(clazz -> {
-                        for (Method method : clazz.getDeclaredMethods()) {
-                            if (method.isAnnotationPresent(Test.class)) {
-                                return true;
-                            }
-                        }
-                        return false;
-                    })
-                    .collect(Collectors.toSet());
-            
-            // Combine both sets
-            testClasses.addAll(classesWithTestMethods);
-            
-            // Process each class
-            for (Class<?> testClass : testClasses) {
-                String className = testClass.getName();
-                
-                // Get all @Test methods
-                List<String> testMethods = Arrays.stream(testClass.getDeclaredMethods())
-                        .filter(method -> method.isAnnotationPresent(Test.class))
-                        .map(Method::getName)
-                        .collect(Collectors.toList());
-                
-                if (!testMethods.isEmpty()) {
-                    result.put(className, testMethods);
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error scanning for test classes: " + e.getMessage());
-            e.printStackTrace();
-        }
-        
-        return result;
+        return TestIndex.load(PACKAGE_TO_SCAN).getTestMethodsByClass();
     }
 }
@@ -0,0 +1,63 @@
+package com.automation;
+
+import java.lang.reflect.Method;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Expensive resources a test may need
+ * Declared per test with @RequiresResources or with a resources.&lt;class&gt;.&lt;method&gt; line in
+ * TestcaseToRun.config, and created lazily on first use.
+ */
+public enum TestResource {
+    BROWSER,
+    SCREEN;
+
+    /**
+     * Work out which resources a test method declares
+     * Order of precedence: config setting for the method, annotation on the method, annotation on
+     * the class, then the resources.default setting (BROWSER,SCREEN when not set).
+     * @param method The test method
+     * @return The declared resources
+     */
+    public static Set<TestResource> requiredBy(Method method) {
+        String configured = AutomationConfig.getString(
+                "resources." + method.getDeclaringClass().getName() + "." + method.getName(), null);
+        if (configured != null) {
+            return parse(configured);
+        }
+        RequiresResources annotation = method.getAnnotation(RequiresResources.class);
+        if (annotation == null) {
+            annotation = method.getDeclaringClass().getAnnotation(RequiresResources.class);
+        }
+        if (annotation != null) {
+            Set<TestResource> resources = EnumSet.noneOf(TestResource.class);
+            for (TestResource resource : annotation.value()) {
+                resources.add(resource);
+            }
+            return resources;
+        }
+        return parse(AutomationConfig.getString("resources.default", "BROWSER,SCREEN"));
+    }
+
+    /**
+     * Parse a comma separated list such as "BROWSER,SCREEN" (NONE = no resources)
+     * @param value The list
+     * @return The resources in the list
+     */
+    public static Set<TestResource> parse(String value) {
+        Set<TestResource> resources = EnumSet.noneOf(TestResource.class);
+        for (String part : value.split(",")) {
+            String name = part.trim().toUpperCase();
+            if (name.isEmpty() || name.equals("NONE")) {
+                continue;
+            }
+            try {
+                resources.add(TestResource.valueOf(name));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown test resource: " + part.trim());
+            }
+        }
+        return resources;
+    }
+}
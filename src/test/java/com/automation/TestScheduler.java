@@ -0,0 +1,178 @@
+package com.automation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders the generated suite using the duration history
+ * Classes and methods are ordered longest-first so long tests start early and parallel runs do
+ * not end with one straggler. In balanced mode the classes are also packed into one group per
+ * thread with roughly equal total duration. Methods keep their declared priority order: the
+ * duration only decides between methods of the same priority, and a class is never split across
+ * groups.
+ * Modes (schedule setting): none, longest-first (default) and balanced.
+ */
+public final class TestScheduler {
+
+    private final String mode;
+    private final String packageName;
+    private final TestHistory history;
+    private TestIndex index;
+
+    private TestScheduler(String mode, String packageName, TestHistory history) {
+        this.mode = mode;
+        this.packageName = packageName;
+        this.history = history;
+    }
+
+    /**
+     * Create a scheduler configured by the schedule setting
+     * @param packageName Package of the test classes, used to look up declared priorities
+     * @return The scheduler
+     */
+    public static TestScheduler fromConfig(String packageName) {
+        String mode = AutomationConfig.getString("schedule", "longest-first").toLowerCase();
+        if (!mode.equals("none") && !mode.equals("longest-first") && !mode.equals("balanced")) {
+            System.err.println("Unknown schedule mode: " + mode + ". Using longest-first");
+            mode = "longest-first";
+        }
+        return new TestScheduler(mode, packageName, mode.equals("none") ? null : TestHistory.load());
+    }
+
+    /**
+     * @return true if the classes should be packed into balanced groups
+     */
+    public boolean isBalanced() {
+        return mode.equals("balanced");
+    }
+
+    /**
+     * @return true if there is history to order by
+     */
+    public boolean hasHistory() {
+        return history != null && !history.isEmpty();
+    }
+
+    /**
+     * Order classes and their methods longest-first
+     * @param classToMethods Test methods per class in their original order
+     * @return The classes, longest first, each with its methods in run order
+     */
+    public List<ScheduledClass> order(Map<String, List<String>> classToMethods) {
+        List<ScheduledClass> classes = new ArrayList<>();
+        long unknownEstimate = history == null ? 0 : history.getAverageEstimateMillis();
+        for (Map.Entry<String, List<String>> entry : classToMethods.entrySet()) {
+            List<ScheduledMethod> methods = new ArrayList<>();
+            for (String methodName : entry.getValue()) {
+                String qualifiedName = entry.getKey() + "." + methodName;
+                long estimate = history == null ? -1 : history.getEstimateMillis(qualifiedName);
+                methods.add(new ScheduledMethod(methodName, getPriority(entry.getKey(), methodName),
+                        estimate < 0 ? unknownEstimate : estimate));
+            }
+            if (hasHistory()) {
+                // Stable sort: priority first, then longest first, then original order
+                methods.sort(Comparator.comparingInt((ScheduledMethod m) -> m.priority)
+                        .thenComparing(Comparator.comparingLong((ScheduledMethod m) -> m.estimateMillis).reversed()));
+            }
+            classes.add(new ScheduledClass(entry.getKey(), methods));
+        }
+        if (hasHistory()) {
+            classes.sort(Comparator.comparingLong(ScheduledClass::getEstimateMillis).reversed());
+        }
+        return classes;
+    }
+
+    /**
+     * Pack classes into groups of roughly equal estimated duration (longest processing time first)
+     * @param classes Classes ordered longest first
+     * @param groupCount Number of groups, normally the thread count
+     * @return The non-empty groups
+     */
+    public List<List<ScheduledClass>> balance(List<ScheduledClass> classes, int groupCount) {
+        List<List<ScheduledClass>> groups = new ArrayList<>();
+        long[] totals = new long[Math.max(1, Math.min(groupCount, classes.size()))];
+        for (int i = 0; i < totals.length; i++) {
+            groups.add(new ArrayList<>());
+        }
+        for (ScheduledClass scheduled : classes) {
+            int lightest = 0;
+            for (int i = 1; i < totals.length; i++) {
+                if (totals[i] < totals[lightest]) {
+                    lightest = i;
+                }
+            }
+            groups.get(lightest).add(scheduled);
+            totals[lightest] += scheduled.getEstimateMillis();
+        }
+        StringBuilder summary = new StringBuilder("Balanced test groups (estimated ms):");
+        for (long total : totals) {
+            summary.append(' ').append(total);
+        }
+        System.out.println(summary);
+        return groups;
+    }
+
+    private int getPriority(String className, String methodName) {
+        if (!hasHistory()) {
+            return 0;
+        }
+        if (index == null) {
+            index = TestIndex.load(packageName);
+        }
+        TestIndex.TestMethod method = index.find(className, methodName);
+        return method == null ? 0 : method.getPriority();
+    }
+
+    /**
+     * A test class and its methods in run order
+     */
+    public static final class ScheduledClass {
+        private final String className;
+        private final List<ScheduledMethod> methods;
+
+        ScheduledClass(String className, List<ScheduledMethod> methods) {
+            this.className = className;
+            this.methods = methods;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        /**
+         * @return Method names in run order
+         */
+        public List<String> getMethodNames() {
+            List<String> names = new ArrayList<>();
+            for (ScheduledMethod method : methods) {
+                names.add(method.name);
+            }
+            return names;
+        }
+
+        /**
+         * @return Sum of the estimated durations of the methods
+         */
+        public long getEstimateMillis() {
+            long total = 0;
+            for (ScheduledMethod method : methods) {
+                total += method.estimateMillis;
+            }
+            return total;
+        }
+    }
+
+    private static final class ScheduledMethod {
+        private final String name;
+        private final int priority;
+        private final long estimateMillis;
+
+        ScheduledMethod(String name, int priority, long estimateMillis) {
+            this.name = name;
+            this.priority = priority;
+            this.estimateMillis = estimateMillis;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.automation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.sikuli.script.Screen;
+import com.aventstack.extentreports.ExtentTest;
+
+/**
+ * Per-thread test state: browser, SikuliX screen handle and the current ExtentTest
+ * Every TestNG worker thread gets its own session, so tests running in parallel never share a
+ * driver or write their log lines into another test's report entry.
+ * The browser and the screen are only created the first time a test asks for them.
+ */
+public final class TestSession {
+
+    private static final ThreadLocal<TestSession> CURRENT = new ThreadLocal<>();
+    private static final Set<TestSession> OPEN_SESSIONS = ConcurrentHashMap.newKeySet();
+
+    private final String threadName;
+    private WebDriver driver;
+    private WebDriverWait wait;
+    private Screen screen;
+    private ExtentTest test;
+    private String testName;
+    private MatchResult lastMatch;
+    private long testStartMillis;
+    private Set<TestResource> declaredResources = EnumSet.allOf(TestResource.class);
+    private boolean failed;
+    private volatile boolean closed;
+
+    private TestSession(String threadName) {
+        this.threadName = threadName;
+    }
+
+    /**
+     * Get the session of the calling thread, starting one if the thread has none yet
+     * Starting a session is cheap, resources are created on first use.
+     * @return The session bound to the current thread
+     */
+    public static TestSession current() {
+        TestSession session = CURRENT.get();
+        if (session == null || session.closed) {
+            session = new TestSession(Thread.currentThread().getName());
+            CURRENT.set(session);
+            OPEN_SESSIONS.add(session);
+        }
+        return session;
+    }
+
+    /**
+     * Get the name of the test running on the calling thread without starting a session
+     * @return The test name, or null if the thread has no session or test
+     */
+    public static String currentTestName() {
+        TestSession session = CURRENT.get();
+        return session == null ? null : session.testName;
+    }
+
+    /**
+     * Close the session of the calling thread if it has one
+     */
+    public static void closeCurrent() {
+        TestSession session = CURRENT.get();
+        if (session != null) {
+            session.close();
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Close every open session (returns the browsers to the pool)
+     */
+    public static void closeAll() {
+        List<TestSession> sessions = new ArrayList<>(OPEN_SESSIONS);
+        for (TestSession session : sessions) {
+            session.close();
+        }
+    }
+
+    /**
+     * Return the browser to the pool (if one was leased) and release the session
+     * A browser used by a failed test is replaced instead of reused
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        OPEN_SESSIONS.remove(this);
+        if (driver != null) {
+            WebDriverPool.getInstance().release(driver, failed);
+            System.out.println("Browser returned to pool for thread " + threadName + (failed ? " (will be replaced)" : ""));
+        }
+    }
+
+    /**
+     * Mark the session as used by a failed test
+     */
+    public void markFailed() {
+        failed = true;
+    }
+
+    /**
+     * Record the test about to run and the resources it declared
+     * @param testName Name of the test method
+     * @param resources Resources declared with @RequiresResources or in the config file
+     */
+    public void beginTest(String testName, Set<TestResource> resources) {
+        this.testName = testName;
+        this.lastMatch = null;
+        this.testStartMillis = System.currentTimeMillis();
+        this.declaredResources = EnumSet.noneOf(TestResource.class);
+        this.declaredResources.addAll(resources);
+    }
+
+    /**
+     * Get the browser, leasing one from the pool on first use
+     * @return The browser of this session
+     */
+    public WebDriver getDriver() {
+        if (driver == null) {
+            checkDeclared(TestResource.BROWSER);
+            // Lease a warm browser from the pool
+            driver = WebDriverPool.getInstance().lease();
+            wait = new WebDriverWait(driver, Duration.ofSeconds(10));
+            System.out.println("Browser leased for thread " + threadName);
+        }
+        return driver;
+    }
+
+    public WebDriverWait getWait() {
+        getDriver();
+        return wait;
+    }
+
+    /**
+     * Get the SikuliX screen, initializing it on first use
+     * @return The screen of this session
+     */
+    public Screen getScreen() {
+        if (screen == null) {
+            checkDeclared(TestResource.SCREEN);
+            screen = new Screen();
+        }
+        return screen;
+    }
+
+    /**
+     * @return true if a browser was leased by this session
+     */
+    public boolean hasDriver() {
+        return driver != null;
+    }
+
+    /**
+     * @return true if the SikuliX screen was initialized by this session
+     */
+    public boolean hasScreen() {
+        return screen != null;
+    }
+
+    private void checkDeclared(TestResource resource) {
+        if (!declaredResources.contains(resource)) {
+            System.err.println("Test " + (testName == null ? "?" : testName) + " uses " + resource
+                    + " without declaring it in @RequiresResources");
+        }
+    }
+
+    /**
+     * @return The ExtentTest the current thread is logging to, or null before initTest
+     */
+    public ExtentTest getTest() {
+        return test;
+    }
+
+    public void setTest(ExtentTest test) {
+        this.test = test;
+    }
+
+    /**
+     * @return The last image found by the current test, or null
+     */
+    public MatchResult getLastMatch() {
+        return lastMatch;
+    }
+
+    public void setLastMatch(MatchResult lastMatch) {
+        this.lastMatch = lastMatch;
+    }
+
+    /**
+     * @return Time the current test started in milliseconds since the epoch
+     */
+    public long getTestStartMillis() {
+        return testStartMillis;
+    }
+}
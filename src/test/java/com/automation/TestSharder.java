@@ -0,0 +1,267 @@
+package com.automation;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Splits the selected tests into shards for runs spread over several JVMs or machines
+ * Every shard computes the same partition from the same input, so each JVM only needs its own
+ * shard.index and the shared shard.count. Units (whole classes by default, or single methods with
+ * shard.by=method) are assigned largest first to the shard with the smallest total. The weights
+ * must be the same on every machine, so they come from the shard.weights file (durations in the
+ * history format, checked in or handed to every shard) and otherwise from the method count; the
+ * local duration history, which differs between machines, is never used. Ties are broken by name
+ * and shard number so the result never depends on map or file system order. Every shard logs a
+ * partition id, which is equal on all shards of one run when they computed the same partition.
+ */
+public final class TestSharder {
+
+    private final int shardIndex;
+    private final int shardCount;
+    private final boolean byMethod;
+    private final TestHistory weights;
+
+    private TestSharder(int shardIndex, int shardCount, boolean byMethod, TestHistory weights) {
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.byMethod = byMethod;
+        this.weights = weights;
+    }
+
+    /**
+     * Create a sharder from the shard.index (0 based), shard.count, shard.by and shard.weights settings
+     * @return The sharder
+     * @throws IllegalStateException if shard.weights names a file that does not exist, since
+     *         weighting by method count instead would give this shard a different partition
+     */
+    public static TestSharder fromConfig() {
+        int count = Math.max(1, AutomationConfig.getInt("shard.count", 1));
+        int index = AutomationConfig.getInt("shard.index", 0);
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException("shard.index must be between 0 and " + (count - 1) + " but was " + index);
+        }
+        boolean byMethod = AutomationConfig.getString("shard.by", "class").equalsIgnoreCase("method");
+        TestHistory weights = null;
+        String weightsFile = AutomationConfig.getString("shard.weights", null);
+        if (weightsFile != null) {
+            File file = new File(weightsFile);
+            if (!file.isFile()) {
+                throw new IllegalStateException("Shard weights file " + file.getAbsolutePath() + " not found");
+            }
+            weights = TestHistory.load(file);
+        }
+        return new TestSharder(index, count, byMethod, weights);
+    }
+
+    /**
+     * @return true if the tests are split over more than one shard
+     */
+    public boolean isEnabled() {
+        return shardCount > 1;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Get the tests of this shard
+     * @param classToMethods All selected test methods per class
+     * @return The test methods per class of this shard, in the original order
+     */
+    public Map<String, List<String>> select(Map<String, List<String>> classToMethods) {
+        if (!isEnabled()) {
+            return classToMethods;
+        }
+        List<Map<String, List<String>>> shards = partition(classToMethods);
+        Map<String, List<String>> shard = shards.get(shardIndex);
+        System.out.println("Shard " + (shardIndex + 1) + " of " + shardCount + ": "
+                + countMethods(shard) + " of " + countMethods(classToMethods) + " test methods, partition id "
+                + partitionId(shards) + (weights == null ? " (weighted by method count)" : " (weighted by shard.weights)"));
+        return shard;
+    }
+
+    /**
+     * Compute every shard
+     * @param classToMethods All selected test methods per class
+     * @return One map of test methods per class for each shard
+     */
+    public List<Map<String, List<String>>> partition(Map<String, List<String>> classToMethods) {
+        TestHistory history = weights;
+        boolean weighted = history != null && !history.isEmpty();
+        long unknownEstimate = weighted ? Math.max(1, history.getAverageEstimateMillis()) : 1;
+
+        // Build the units to distribute
+        List<Unit> units = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : classToMethods.entrySet()) {
+            if (byMethod) {
+                for (String method : entry.getValue()) {
+                    Unit unit = new Unit(entry.getKey(), entry.getKey() + "." + method);
+                    unit.add(method, weight(history, weighted, entry.getKey() + "." + method, unknownEstimate));
+                    units.add(unit);
+                }
+            } else {
+                Unit unit = new Unit(entry.getKey(), entry.getKey());
+                for (String method : entry.getValue()) {
+                    unit.add(method, weight(history, weighted, entry.getKey() + "." + method, unknownEstimate));
+                }
+                units.add(unit);
+            }
+        }
+        units.sort(Comparator.comparingLong((Unit u) -> u.weight).reversed().thenComparing(u -> u.name));
+
+        // Largest first onto the lightest shard, lowest shard number on ties
+        long[] totals = new long[shardCount];
+        List<List<Unit>> assigned = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            assigned.add(new ArrayList<>());
+        }
+        for (Unit unit : units) {
+            int lightest = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (totals[i] < totals[lightest]) {
+                    lightest = i;
+                }
+            }
+            assigned.get(lightest).add(unit);
+            totals[lightest] += unit.weight;
+        }
+
+        // Rebuild class maps keeping the original class and method order
+        List<Map<String, List<String>>> shards = new ArrayList<>();
+        for (List<Unit> shardUnits : assigned) {
+            Map<String, List<String>> selected = new HashMap<>();
+            for (Unit unit : shardUnits) {
+                selected.computeIfAbsent(unit.className, k -> new ArrayList<>()).addAll(unit.methods);
+            }
+            Map<String, List<String>> ordered = new LinkedHashMap<>();
+            for (Map.Entry<String, List<String>> entry : classToMethods.entrySet()) {
+                List<String> methods = selected.get(entry.getKey());
+                if (methods != null) {
+                    List<String> inOrder = new ArrayList<>();
+                    for (String method : entry.getValue()) {
+                        if (methods.contains(method)) {
+                            inOrder.add(method);
+                        }
+                    }
+                    ordered.put(entry.getKey(), inOrder);
+                }
+            }
+            shards.add(ordered);
+        }
+        return shards;
+    }
+
+    /**
+     * Id of a partition: a checksum of every shard's test methods in order
+     * Shards of one run that print different ids did not compute the same partition.
+     * @param shards The shards
+     * @return Eight hex digits
+     */
+    public static String partitionId(List<Map<String, List<String>>> shards) {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < shards.size(); i++) {
+            crc.update(("#" + i + "\n").getBytes(StandardCharsets.UTF_8));
+            for (Map.Entry<String, List<String>> entry : shards.get(i).entrySet()) {
+                for (String method : entry.getValue()) {
+                    crc.update((entry.getKey() + "." + method + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return String.format("%08x", crc.getValue());
+    }
+
+    /**
+     * Check that the shards, each computed independently as a separate JVM would, cover every
+     * selected test method exactly once
+     * Only the inputs of this machine are checked; compare the partition id printed by each shard
+     * to check that the machines agree.
+     * @param classToMethods All selected test methods per class
+     * @return true if the partition is exact
+     */
+    public boolean verify(Map<String, List<String>> classToMethods) {
+        TestHistory history = weights;
+        Map<String, Integer> seen = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : classToMethods.entrySet()) {
+            for (String method : entry.getValue()) {
+                seen.put(entry.getKey() + "." + method, 0);
+            }
+        }
+        boolean valid = true;
+        for (int i = 0; i < shardCount; i++) {
+            TestSharder shard = new TestSharder(i, shardCount, byMethod, weights);
+            Map<String, List<String>> selected = shard.partition(classToMethods).get(i);
+            long estimate = 0;
+            for (Map.Entry<String, List<String>> entry : selected.entrySet()) {
+                for (String method : entry.getValue()) {
+                    String name = entry.getKey() + "." + method;
+                    Integer count = seen.get(name);
+                    if (count == null) {
+                        System.err.println("Shard " + (i + 1) + " contains unknown test " + name);
+                        valid = false;
+                        continue;
+                    }
+                    seen.put(name, count + 1);
+                    long known = history == null ? -1 : history.getEstimateMillis(name);
+                    estimate += Math.max(0, known);
+                }
+            }
+            System.out.println("Shard " + (i + 1) + " of " + shardCount + ": " + countMethods(selected)
+                    + " test methods, estimated " + estimate + " ms");
+        }
+        for (Map.Entry<String, Integer> entry : seen.entrySet()) {
+            if (entry.getValue() != 1) {
+                System.err.println("Test " + entry.getKey() + " is in " + entry.getValue() + " shards");
+                valid = false;
+            }
+        }
+        System.out.println(valid
+                ? "Shards cover all " + seen.size() + " test methods exactly once, partition id " + partitionId(partition(classToMethods))
+                : "Shard verification failed");
+        return valid;
+    }
+
+    private static long weight(TestHistory history, boolean weighted, String qualifiedName, long unknownEstimate) {
+        if (!weighted) {
+            return 1;
+        }
+        long estimate = history.getEstimateMillis(qualifiedName);
+        return estimate < 0 ? unknownEstimate : Math.max(1, estimate);
+    }
+
+    private static int countMethods(Map<String, List<String>> classToMethods) {
+        int count = 0;
+        for (List<String> methods : classToMethods.values()) {
+            count += methods.size();
+        }
+        return count;
+    }
+
+    private static final class Unit {
+        private final String className;
+        private final String name;
+        private final List<String> methods = new ArrayList<>();
+        private long weight;
+
+        Unit(String className, String name) {
+            this.className = className;
+            this.name = name;
+        }
+
+        void add(String method, long methodWeight) {
+            methods.add(method);
+            weight += methodWeight;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.automation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import org.testng.TestNG;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlInclude;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+/**
+ * Worker side of TestCoordinator
+ * Connects to the coordinator on the loopback interface, runs each test it is handed in this JVM
+ * and reports the outcome together with the path of its JSON Extent report (extent.json.file).
+ * Every test is a TestNG run of its own, so suite level services (browser pool, screenshot
+ * writer, step log, metrics) register with onExit to be started once and stopped when the worker
+ * has no more work, instead of in every run's @AfterSuite.
+ */
+public class TestWorker {
+
+    private static final List<Runnable> EXIT_TASKS = new ArrayList<>();
+
+    private final String workerId;
+    private final int port;
+
+    /**
+     * Create a worker configured by executor.port and executor.worker.id
+     */
+    public TestWorker() {
+        this.workerId = AutomationConfig.getString("executor.worker.id", "1");
+        this.port = AutomationConfig.getInt("executor.port", 0);
+    }
+
+    /**
+     * Register a task to run once when the worker has finished all its tests
+     * @param task The task, for example stopping the services started by the first test
+     */
+    public static void onExit(Runnable task) {
+        synchronized (EXIT_TASKS) {
+            EXIT_TASKS.add(task);
+        }
+    }
+
+    /**
+     * Run tests until the coordinator has no more work
+     */
+    public void run() throws IOException {
+        try {
+            runUntilDone();
+        } finally {
+            runExitTasks();
+        }
+    }
+
+    private void runUntilDone() throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            out.println("HELLO\t" + workerId);
+            String line;
+            while ((line = in.readLine()) != null && line.startsWith("RUN\t")) {
+                String[] fields = line.split("\t", -1);
+                String className = fields[1];
+                List<String> methods = Arrays.asList(fields[2].split(","));
+                long start = System.currentTimeMillis();
+                String status = runTests(className, methods);
+                out.println("RESULT\t" + className + "\t" + fields[2] + "\t" + status + "\t"
+                        + (System.currentTimeMillis() - start) + "\t" + AutomationConfig.getString("extent.json.file", ""));
+            }
+        }
+    }
+
+    private static void runExitTasks() {
+        List<Runnable> tasks;
+        synchronized (EXIT_TASKS) {
+            tasks = new ArrayList<>(EXIT_TASKS);
+            EXIT_TASKS.clear();
+        }
+        for (Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Worker shutdown task failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Run the given methods of one class in a TestNG run of their own
+     * @return PASS, FAIL, SKIP, or NOT_RUN when no method was executed
+     */
+    private String runTests(String className, List<String> methods) {
+        XmlSuite suite = new XmlSuite();
+        suite.setName("WAMP Automation Suite");
+        XmlTest test = new XmlTest(suite);
+        test.setName("Worker " + workerId);
+        XmlClass xmlClass = new XmlClass(className);
+        List<XmlInclude> includes = new ArrayList<>();
+        for (String method : methods) {
+            includes.add(new XmlInclude(method));
+        }
+        xmlClass.setIncludedMethods(includes);
+        test.setXmlClasses(Collections.singletonList(xmlClass));
+
+        OutcomeListener outcome = new OutcomeListener();
+        TestNG testng = new TestNG();
+        testng.setXmlSuites(Collections.singletonList(suite));
+        // The coordinator writes the reports, skip TestNG's own HTML output of every small run
+        testng.setUseDefaultListeners(false);
+        testng.addListener(new TestHistoryListener());
+        testng.addListener(outcome);
+        testng.run();
+        return outcome.getStatus();
+    }
+
+    private static final class OutcomeListener implements ITestListener {
+        private int passed;
+        private int failed;
+        private int skipped;
+
+        @Override
+        public synchronized void onTestSuccess(ITestResult result) {
+            passed++;
+        }
+
+        @Override
+        public synchronized void onTestFailure(ITestResult result) {
+            failed++;
+        }
+
+        @Override
+        public synchronized void onTestSkipped(ITestResult result) {
+            skipped++;
+        }
+
+        synchronized String getStatus() {
+            if (failed > 0) {
+                return "FAIL";
+            }
+            if (skipped > 0) {
+                return "SKIP";
+            }
+            return passed > 0 ? "PASS" : "NOT_RUN";
+        }
+    }
+}
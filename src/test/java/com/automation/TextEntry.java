@@ -0,0 +1,291 @@
+package com.automation;
+
+import java.awt.Toolkit;
+import java.awt.datatransfer.Clipboard;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
+import java.awt.datatransfer.Transferable;
+import org.sikuli.script.Key;
+import org.sikuli.script.Region;
+
+/**
+ * Enters text into the focused field
+ * Typing sends one synthetic key stroke per character, so long texts (file paths) are slow and
+ * occasionally lose characters under load. In paste mode the text is put on the clipboard and
+ * pasted with a single shortcut, which takes the same time for any length. The field is then
+ * selected and copied back to check the result; if it does not match, the field is cleared and
+ * the text is typed in small chunks instead. The clipboard content from before the call is
+ * restored afterwards.
+ * The application reads the clipboard when it handles the shortcut, which can be after the key
+ * strokes were sent, so the clipboard is only changed again once the paste has had time to land
+ * (text.paste.settle.ms), and the copied text is polled for until it arrives.
+ * Modes (text.entry setting): paste (default) and type.
+ */
+public class TextEntry {
+
+    /**
+     * How the text ended up in the field
+     */
+    public enum Mode { PASTED, PASTED_UNVERIFIED, TYPED }
+
+    private static final int CLIPBOARD_ATTEMPTS = 5;
+
+    private final boolean paste;
+    private final boolean verify;
+    private final int chunkSize;
+    private final long chunkPauseMillis;
+    private final long settleMillis;
+    private final long copyTimeoutMillis;
+    private long calls;
+    private long characters;
+    private long fallbacks;
+    private long totalNanos;
+    private long maxNanos;
+
+    /**
+     * Create a text entry
+     * @param paste true to paste through the clipboard, false to always type
+     * @param verify true to copy the field back after pasting and compare it
+     * @param chunkSize Characters typed at once when typing
+     * @param chunkPauseMillis Pause between two typed chunks
+     * @param settleMillis Time the application gets to read the pasted text before the clipboard changes again
+     * @param copyTimeoutMillis Maximum time to wait for the copied field text to reach the clipboard
+     */
+    public TextEntry(boolean paste, boolean verify, int chunkSize, long chunkPauseMillis, long settleMillis, long copyTimeoutMillis) {
+        this.paste = paste;
+        this.verify = verify;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.chunkPauseMillis = Math.max(0, chunkPauseMillis);
+        this.settleMillis = Math.max(0, settleMillis);
+        this.copyTimeoutMillis = Math.max(0, copyTimeoutMillis);
+    }
+
+    /**
+     * Create a text entry configured by the text.* settings
+     * @return The text entry
+     */
+    public static TextEntry fromConfig() {
+        String mode = AutomationConfig.getString("text.entry", "paste");
+        if (!mode.equalsIgnoreCase("paste") && !mode.equalsIgnoreCase("type")) {
+            System.err.println("Unknown text entry mode: " + mode + ". Using paste");
+            mode = "paste";
+        }
+        return new TextEntry(mode.equalsIgnoreCase("paste"),
+                AutomationConfig.getBoolean("text.verify", true),
+                AutomationConfig.getInt("text.chunk.size", 16),
+                AutomationConfig.getLong("text.chunk.pause.ms", 50),
+                AutomationConfig.getLong("text.paste.settle.ms", 200),
+                AutomationConfig.getLong("text.copy.timeout.ms", 2000));
+    }
+
+    /**
+     * Enter text into the field that has the keyboard focus
+     * @param region Region (normally the screen) to send the keys to
+     * @param text The text to enter
+     * @return How the text was entered and how long it took
+     */
+    public Result enter(Region region, String text) {
+        long start = System.nanoTime();
+        Mode mode = Mode.TYPED;
+        if (paste) {
+            mode = pasteText(region, text);
+        }
+        if (mode == Mode.TYPED) {
+            typeInChunks(region, text);
+        }
+        long elapsed = System.nanoTime() - start;
+        synchronized (this) {
+            calls++;
+            characters += text.length();
+            totalNanos += elapsed;
+            maxNanos = Math.max(maxNanos, elapsed);
+            if (paste && mode == Mode.TYPED) {
+                fallbacks++;
+            }
+        }
+        return new Result(mode, text.length(), elapsed);
+    }
+
+    private Mode pasteText(Region region, String text) {
+        Clipboard clipboard;
+        try {
+            clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
+        } catch (Exception e) {
+            System.err.println("Clipboard not available, typing instead: " + e.getMessage());
+            return Mode.TYPED;
+        }
+
+        Transferable saved = getContents(clipboard);
+        try {
+            if (!setContents(clipboard, new StringSelection(text))) {
+                return Mode.TYPED;
+            }
+            region.type("v", Key.getHotkeyModifier());
+            // Let the application read the clipboard before it is replaced or restored
+            sleep(settleMillis);
+            if (!verify) {
+                return Mode.PASTED_UNVERIFIED;
+            }
+
+            // Copy the field back and compare, a marker shows whether the copy has arrived yet
+            String marker = "text-entry-" + System.nanoTime();
+            setContents(clipboard, new StringSelection(marker));
+            region.type("a", Key.getHotkeyModifier());
+            region.type("c", Key.getHotkeyModifier());
+            String copied = waitForChange(clipboard, marker);
+            if (copied == null) {
+                System.err.println("Field text did not reach the clipboard within " + copyTimeoutMillis + " ms, typing it instead");
+                region.type(Key.BACKSPACE);
+                return Mode.TYPED;
+            }
+            if (text.equals(copied)) {
+                // Drop the selection so following keys don't replace the text
+                region.type(Key.END);
+                return Mode.PASTED;
+            }
+            System.err.println("Pasted text did not arrive intact (got " + copied.length() + " characters), typing it instead");
+            // Clear the field, the copy left everything selected
+            region.type(Key.BACKSPACE);
+            return Mode.TYPED;
+        } finally {
+            if (saved != null) {
+                setContents(clipboard, saved);
+            }
+        }
+    }
+
+    /**
+     * Poll the clipboard until it holds something other than the marker
+     * @return The new clipboard text, or null if it did not change in time
+     */
+    private String waitForChange(Clipboard clipboard, String marker) {
+        long deadline = System.currentTimeMillis() + copyTimeoutMillis;
+        while (true) {
+            String current = getText(clipboard);
+            if (current != null && !current.equals(marker)) {
+                return current;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                return null;
+            }
+            sleep(20);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void typeInChunks(Region region, String text) {
+        for (int i = 0; i < text.length(); i += chunkSize) {
+            region.type(text.substring(i, Math.min(text.length(), i + chunkSize)));
+            if (chunkPauseMillis > 0 && i + chunkSize < text.length()) {
+                try {
+                    Thread.sleep(chunkPauseMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // The system clipboard can be briefly locked by another application, so every access is retried
+
+    private static Transferable getContents(Clipboard clipboard) {
+        for (int attempt = 1; attempt <= CLIPBOARD_ATTEMPTS; attempt++) {
+            try {
+                Transferable contents = clipboard.getContents(null);
+                // Text is copied now, the owner may not provide it any more once we replace it
+                if (contents != null && contents.isDataFlavorSupported(DataFlavor.stringFlavor)) {
+                    return new StringSelection((String) contents.getTransferData(DataFlavor.stringFlavor));
+                }
+                return contents;
+            } catch (IllegalStateException e) {
+                pause(attempt);
+            } catch (Exception e) {
+                System.err.println("Failed to read the clipboard, its content will not be restored: " + e.getMessage());
+                return null;
+            }
+        }
+        System.err.println("Clipboard busy, its content will not be restored");
+        return null;
+    }
+
+    private static boolean setContents(Clipboard clipboard, Transferable contents) {
+        for (int attempt = 1; attempt <= CLIPBOARD_ATTEMPTS; attempt++) {
+            try {
+                clipboard.setContents(contents, null);
+                return true;
+            } catch (IllegalStateException e) {
+                pause(attempt);
+            }
+        }
+        System.err.println("Clipboard busy, could not set its content");
+        return false;
+    }
+
+    private static String getText(Clipboard clipboard) {
+        for (int attempt = 1; attempt <= CLIPBOARD_ATTEMPTS; attempt++) {
+            try {
+                return (String) clipboard.getData(DataFlavor.stringFlavor);
+            } catch (IllegalStateException e) {
+                pause(attempt);
+            } catch (Exception e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static void pause(int attempt) {
+        try {
+            Thread.sleep(20L * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return One line summary for logging
+     */
+    public synchronized String getSummary() {
+        return String.format("text entry calls=%d characters=%d fallbacks=%d avg=%.1fms max=%.1fms",
+                calls, characters, fallbacks, calls == 0 ? 0.0 : totalNanos / (calls * 1_000_000.0), maxNanos / 1_000_000.0);
+    }
+
+    /**
+     * Outcome of one text entry
+     */
+    public static final class Result {
+        private final Mode mode;
+        private final int length;
+        private final long elapsedNanos;
+
+        Result(Mode mode, int length, long elapsedNanos) {
+            this.mode = mode;
+            this.length = length;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Mode getMode() {
+            return mode;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        @Override
+        public String toString() {
+            return mode + " " + length + " characters in " + getElapsedMillis() + " ms";
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.automation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+
+/**
+ * Pool of warm browser sessions shared by the test classes
+ * Sessions are started ahead of time in the background, leased to a test session and reset
+ * (cookies, extra tabs, page) when they come back. A browser is quit and replaced after a
+ * configurable number of uses or when the test using it failed.
+ * Once shutdown has begun no browser is started ahead of time any more, and a browser that
+ * finishes starting or comes back after the pool was emptied is quit instead of kept.
+ */
+public class WebDriverPool {
+
+    private static WebDriverPool instance;
+
+    private final Supplier<WebDriver> factory;
+    private final int maxSize;
+    private final int maxUses;
+    private final long leaseTimeoutMillis;
+    private final LinkedBlockingQueue<PooledDriver> idle = new LinkedBlockingQueue<>();
+    private final Map<WebDriver, PooledDriver> leased = new ConcurrentHashMap<>();
+    private final AtomicInteger warmingCount = new AtomicInteger();
+    private final AtomicInteger liveCount = new AtomicInteger();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong leaseCount = new AtomicLong();
+    private final AtomicLong recycledCount = new AtomicLong();
+    private final AtomicLong totalStartupNanos = new AtomicLong();
+    private final ExecutorService warmer;
+    // Guards the shutdown flag against idle.offer, so nothing is added after shutdown emptied the pool
+    private final Object idleLock = new Object();
+    private volatile boolean shutdown;
+
+    /**
+     * Create a pool
+     * @param factory Starts a new browser session
+     * @param maxSize Maximum number of live browser sessions
+     * @param maxUses Leases after which a session is replaced
+     * @param leaseTimeoutMillis Maximum time to wait for a free session
+     */
+    public WebDriverPool(Supplier<WebDriver> factory, int maxSize, int maxUses, long leaseTimeoutMillis) {
+        this.factory = factory;
+        this.maxSize = Math.max(1, maxSize);
+        this.maxUses = Math.max(1, maxUses);
+        this.leaseTimeoutMillis = leaseTimeoutMillis;
+        this.warmer = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "webdriver-pool-warmer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Get the shared pool configured by the driver.pool.* settings
+     * driver.pool.stub=true makes the pool hand out StubWebDriver sessions instead of Chrome.
+     * @return The shared pool
+     */
+    public static synchronized WebDriverPool getInstance() {
+        if (instance == null || instance.shutdown) {
+            Supplier<WebDriver> factory;
+            if (AutomationConfig.getBoolean("driver.pool.stub", false)) {
+                long startupMillis = AutomationConfig.getLong("driver.pool.stub.startup.ms", 0);
+                factory = () -> new StubWebDriver(startupMillis);
+            } else {
+                factory = WebDriverPool::startChrome;
+            }
+            instance = new WebDriverPool(factory,
+                    AutomationConfig.getInt("driver.pool.size", 1),
+                    AutomationConfig.getInt("driver.pool.max.uses", 50),
+                    AutomationConfig.getLong("driver.pool.lease.timeout.ms", 120000));
+        }
+        return instance;
+    }
+
+    /**
+     * Shut down the shared pool and log its summary, if it was ever created
+     */
+    public static synchronized void shutdownInstance() {
+        if (instance != null && !instance.shutdown) {
+            instance.shutdown();
+            System.out.println(instance.getSummary());
+        }
+    }
+
+    private static WebDriver startChrome() {
+        DriverResolutionCache.resolveChromeDriver();
+        WebDriver driver = new ChromeDriver();
+        driver.manage().window().maximize();
+        return driver;
+    }
+
+    /**
+     * Start browser sessions in the background until the pool is full
+     * Returns immediately, leases wait for sessions that are still starting
+     */
+    public void prewarm() {
+        while (!shutdown && reserveSlot()) {
+            warmingCount.incrementAndGet();
+            try {
+                warmer.submit(() -> {
+                    try {
+                        offerIdle(create());
+                    } catch (Exception e) {
+                        System.err.println("Failed to pre-warm browser: " + e.getMessage());
+                    } finally {
+                        warmingCount.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Shutdown started after the check
+                liveCount.decrementAndGet();
+                warmingCount.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Put a session back into the pool, or quit it if the pool is shutting down
+     */
+    private void offerIdle(PooledDriver pooled) {
+        synchronized (idleLock) {
+            if (!shutdown) {
+                idle.offer(pooled);
+                return;
+            }
+        }
+        discard(pooled, false);
+    }
+
+    /**
+     * Lease a browser session
+     * @return A reset browser session for exclusive use until it is released
+     */
+    public WebDriver lease() {
+        if (shutdown) {
+            throw new IllegalStateException("Browser pool is shut down");
+        }
+        long deadline = System.currentTimeMillis() + leaseTimeoutMillis;
+        PooledDriver pooled = idle.poll();
+        while (pooled == null) {
+            if (shutdown) {
+                throw new IllegalStateException("Browser pool is shut down");
+            }
+            if (reserveSlot()) {
+                pooled = create();
+                break;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IllegalStateException("No browser available within " + leaseTimeoutMillis + " ms");
+            }
+            try {
+                // Wait for a released or pre-warmed session, re-checking for a free slot now and then
+                pooled = idle.poll(200, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a browser", e);
+            }
+        }
+        pooled.uses++;
+        leased.put(pooled.driver, pooled);
+        leaseCount.incrementAndGet();
+        return pooled.driver;
+    }
+
+    /**
+     * Return a leased browser session
+     * @param driver The leased session
+     * @param failed true if the test using it failed (the session is then replaced)
+     */
+    public void release(WebDriver driver, boolean failed) {
+        PooledDriver pooled = leased.remove(driver);
+        if (pooled == null) {
+            quitQuietly(driver);
+            return;
+        }
+        if (shutdown || failed || pooled.uses >= maxUses) {
+            discard(pooled, true);
+            prewarm();
+            return;
+        }
+        try {
+            reset(driver);
+            offerIdle(pooled);
+        } catch (Exception e) {
+            System.err.println("Failed to reset browser, replacing it: " + e.getMessage());
+            discard(pooled, true);
+            prewarm();
+        }
+    }
+
+    /**
+     * Quit every browser session
+     * Warm-ups still starting a browser are waited for; one that finishes later quits its browser itself.
+     */
+    public void shutdown() {
+        synchronized (idleLock) {
+            shutdown = true;
+        }
+        warmer.shutdown();
+        try {
+            warmer.awaitTermination(leaseTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<PooledDriver> all = new ArrayList<>(leased.values());
+        leased.clear();
+        synchronized (idleLock) {
+            idle.drainTo(all);
+        }
+        for (PooledDriver pooled : all) {
+            discard(pooled, false);
+        }
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getLeasedCount() {
+        return leased.size();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public long getRecycledCount() {
+        return recycledCount.get();
+    }
+
+    /**
+     * @return One line summary of the pool counters for logging
+     */
+    public String getSummary() {
+        long created = createdCount.get();
+        return String.format("browser pool created=%d leases=%d recycled=%d idle=%d leased=%d warming=%d avgStartup=%.0fms",
+                created, leaseCount.get(), recycledCount.get(), idle.size(), leased.size(), warmingCount.get(),
+                created == 0 ? 0.0 : totalStartupNanos.get() / (created * 1_000_000.0));
+    }
+
+    /**
+     * Clear cookies, close extra tabs and load a blank page
+     */
+    private static void reset(WebDriver driver) {
+        driver.manage().deleteAllCookies();
+        List<String> handles = new ArrayList<>(driver.getWindowHandles());
+        for (int i = 1; i < handles.size(); i++) {
+            driver.switchTo().window(handles.get(i));
+            driver.close();
+        }
+        driver.switchTo().window(handles.get(0));
+        driver.get("about:blank");
+    }
+
+    private boolean reserveSlot() {
+        while (true) {
+            int live = liveCount.get();
+            if (live >= maxSize) {
+                return false;
+            }
+            if (liveCount.compareAndSet(live, live + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private PooledDriver create() {
+        long start = System.nanoTime();
+        try {
+            WebDriver driver = factory.get();
+            createdCount.incrementAndGet();
+            totalStartupNanos.addAndGet(System.nanoTime() - start);
+            LatencyMetrics.getInstance().record(LatencyMetrics.Operation.DRIVER_START, null, System.nanoTime() - start);
+            System.out.println("Browser session started in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return new PooledDriver(driver);
+        } catch (RuntimeException e) {
+            liveCount.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void discard(PooledDriver pooled, boolean recycled) {
+        liveCount.decrementAndGet();
+        if (recycled) {
+            recycledCount.incrementAndGet();
+        }
+        quitQuietly(pooled.driver);
+    }
+
+    private static void quitQuietly(WebDriver driver) {
+        try {
+            driver.quit();
+        } catch (Exception e) {
+            System.err.println("Error closing browser: " + e.getMessage());
+        }
+    }
+
+    private static final class PooledDriver {
+        private final WebDriver driver;
+        private int uses;
+
+        PooledDriver(WebDriver driver) {
+            this.driver = driver;
+        }
+    }
+}